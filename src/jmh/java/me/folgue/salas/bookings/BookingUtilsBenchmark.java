@@ -0,0 +1,56 @@
+package me.folgue.salas.bookings;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the date checks of {@link BookingUtils}, which are made for
+ * every booking visited when looking for conflicts.
+ *
+ * @author folgue
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookingUtilsBenchmark {
+
+    private final LocalDateTime startDate = LocalDateTime.of(2024, Month.JULY, 21, 10, 0);
+    private final LocalDateTime endDate = LocalDateTime.of(2024, Month.JULY, 21, 11, 0);
+    private final LocalDateTime overlappingStartDate = LocalDateTime.of(2024, Month.JULY, 21, 10, 30);
+    private final LocalDateTime overlappingEndDate = LocalDateTime.of(2024, Month.JULY, 21, 11, 30);
+    private final LocalDateTime laterStartDate = LocalDateTime.of(2024, Month.JULY, 22, 10, 0);
+    private final LocalDateTime laterEndDate = LocalDateTime.of(2024, Month.JULY, 22, 11, 0);
+
+    @Benchmark
+    public boolean isDateRangeInRange_Overlapping() {
+        return BookingUtils.isDateRangeInRange(this.startDate, this.endDate, this.overlappingStartDate, this.overlappingEndDate);
+    }
+
+    @Benchmark
+    public boolean isDateRangeInRange_Disjoint() {
+        return BookingUtils.isDateRangeInRange(this.startDate, this.endDate, this.laterStartDate, this.laterEndDate);
+    }
+
+    @Benchmark
+    public boolean isValidDateRange_Valid() {
+        return BookingUtils.isValidDateRange(this.startDate, this.endDate);
+    }
+
+    @Benchmark
+    public boolean isValidDateRange_Invalid() {
+        return BookingUtils.isValidDateRange(this.endDate, this.startDate);
+    }
+}
@@ -0,0 +1,106 @@
+package me.folgue.salas.bookings;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import me.folgue.salas.rooms.Room;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the engines used to find the bookings of a room that have a
+ * conflict with a range of time: the linear scan over all the bookings of the
+ * room (<i>the original implementation of
+ * {@link BookingService#getBookingsForRoomInRange}</i>) and
+ * {@link BookingIntervalIndex}.
+ * <br>
+ * The room has {@code bookings} bookings of one hour, with half an hour
+ * between them, and each invocation looks up a random range of half an hour.
+ *
+ * @author folgue
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ConflictDetectionBenchmark {
+
+    private static final long ROOM_ID = 1L;
+    private static final LocalDateTime FIRST_BOOKING = LocalDateTime.of(2024, Month.JANUARY, 1, 0, 0);
+    private static final int QUERIES = 1024;
+
+    @Param({"10", "10000", "1000000"})
+    private int bookings;
+
+    private List<Booking> roomBookings;
+    private BookingIntervalIndex index;
+    private LocalDateTime[] queryStartDates;
+    private LocalDateTime[] queryEndDates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Room room = new Room("Sala", 10, "A1");
+        room.setId(ROOM_ID);
+
+        this.roomBookings = new ArrayList<>(this.bookings);
+        List<BookingInterval> intervals = new ArrayList<>(this.bookings);
+        for (int i = 0; i < this.bookings; i++) {
+            LocalDateTime startDate = FIRST_BOOKING.plusMinutes(90L * i);
+            Booking booking = new Booking("Organizador", startDate, startDate.plusHours(1), room);
+            booking.setId((long) i);
+            this.roomBookings.add(booking);
+            intervals.add(BookingInterval.of(booking));
+        }
+        this.index = BookingIntervalIndex.of(intervals);
+
+        Random random = new Random(42);
+        this.queryStartDates = new LocalDateTime[QUERIES];
+        this.queryEndDates = new LocalDateTime[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            this.queryStartDates[i] = FIRST_BOOKING.plusMinutes(random.nextLong(90L * this.bookings));
+            this.queryEndDates[i] = this.queryStartDates[i].plusMinutes(30);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Query {
+
+        private int next;
+
+        int next() {
+            this.next = (this.next + 1) % QUERIES;
+            return this.next;
+        }
+    }
+
+    @Benchmark
+    public List<Booking> linearScan(Query query) {
+        int i = query.next();
+        LocalDateTime startDate = this.queryStartDates[i];
+        LocalDateTime endDate = this.queryEndDates[i];
+        return this.roomBookings.stream()
+                .filter(b -> BookingUtils.isDateRangeInRange(startDate, endDate, b.getStartDate(), b.getEndDate()))
+                .toList();
+    }
+
+    @Benchmark
+    public List<BookingInterval> intervalIndex(Query query) {
+        int i = query.next();
+        return this.index.findOverlapping(ROOM_ID, this.queryStartDates[i], this.queryEndDates[i]);
+    }
+}
@@ -0,0 +1,44 @@
+package me.folgue.salas.audit;
+
+/**
+ * Mutation recorded in the {@link AuditJournal}.
+ * <br>
+ * <b>NOTE</b>: The codes are stored in the journal, so they can't change,
+ * new actions have to use new codes.
+ *
+ * @author folgue
+ */
+public enum AuditAction {
+    BOOKING_CREATED(1),
+    BOOKING_UPDATED(2),
+    BOOKING_DELETED(3),
+    ROOM_CREATED(4),
+    ROOM_UPDATED(5),
+    ROOM_DELETED(6),
+    RECURRING_BOOKING_CREATED(7),
+    RECURRING_BOOKING_DELETED(8);
+
+    private final byte code;
+
+    AuditAction(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return this.code;
+    }
+
+    /**
+     * @param code Code of the action.
+     * @return The action with the given code, or {@code null} if there is
+     * none.
+     */
+    public static AuditAction fromCode(byte code) {
+        for (AuditAction action : values()) {
+            if (action.code == code) {
+                return action;
+            }
+        }
+        return null;
+    }
+}
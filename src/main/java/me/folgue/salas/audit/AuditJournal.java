@@ -0,0 +1,341 @@
+package me.folgue.salas.audit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import lombok.extern.java.Log;
+import me.folgue.salas.bookings.BookingChangeEvent;
+import me.folgue.salas.bookings.BookingSummary;
+import me.folgue.salas.rooms.RoomChangeEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Append-only journal of the mutations made to the bookings and the rooms,
+ * stored as {@link AuditRecord}s of a fixed size in segment files of
+ * {@code salas.audit.directory}.
+ * <br>
+ * The records are handed to a writer thread through a lock-free queue, so
+ * recording a mutation doesn't wait for any IO. The writer copies them into
+ * the current segment, which is memory-mapped, and creates a new segment
+ * once it's full (<i>{@code salas.audit.segment-records} records</i>),
+ * removing the oldest ones if there are more than
+ * {@code salas.audit.max-segments} (<i>0 keeps all of them</i>). The
+ * segments are forced to disk whenever the writer runs out of records, and at
+ * least every second.
+ * <br>
+ * The writer makes the timestamps of the records non-decreasing, so the
+ * records of a range of time can be found with a binary search.
+ * <br>
+ * <b>NOTE</b>: It has to be enabled with {@code salas.audit.enabled=true}.
+ * The journal belongs to the instance of the API, it only has the mutations
+ * made through it, so it isn't a complete record when there are several
+ * instances.
+ *
+ * @author folgue
+ */
+@Component
+@ConditionalOnProperty(name = "salas.audit.enabled", havingValue = "true")
+@Log
+public class AuditJournal {
+
+    private static final String SEGMENT_FORMAT = "audit-%012d.journal";
+    private static final Pattern SEGMENT_PATTERN = Pattern.compile("audit-(\\d{12})\\.journal");
+    private static final long FORCE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final int maxSegments;
+
+    private final Queue<AuditRecord> pending = new ConcurrentLinkedQueue<>();
+    private volatile boolean running;
+    private Thread writer;
+
+    // Only used by the writer thread once it has been started.
+    private long segmentNumber;
+    private MappedByteBuffer segment;
+    private long lastTimestamp;
+    private boolean dirty;
+    private long lastForce;
+
+    public AuditJournal(
+            @Value("${salas.audit.directory:audit}") Path directory,
+            @Value("${salas.audit.segment-records:65536}") int segmentRecords,
+            @Value("${salas.audit.max-segments:64}") int maxSegments
+    ) {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * Opens the last segment of the journal (<i>or creates the first one</i>)
+     * and starts the writer thread.
+     *
+     * @throws IOException If the segment can't be opened.
+     */
+    @PostConstruct
+    public synchronized void start() throws IOException {
+        Files.createDirectories(this.directory);
+        List<Long> segments = this.listSegments();
+        if (segments.isEmpty()) {
+            this.openSegment(1);
+        } else {
+            this.openSegment(segments.get(segments.size() - 1));
+            int written = countWritten(this.segment, this.segmentRecords);
+            this.segment.position(written * AuditRecord.SIZE);
+            if (written > 0) {
+                this.lastTimestamp = AuditRecord.readEpochMillis(this.segment, (written - 1) * AuditRecord.SIZE);
+            }
+        }
+
+        this.running = true;
+        this.writer = new Thread(this::writeRecords, "audit-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        log.info(() -> String.format("Audit journal opened at segment %d of %s.", this.segmentNumber, this.directory.toAbsolutePath()));
+    }
+
+    /**
+     * Stops the writer thread once it has written the pending records.
+     */
+    @PreDestroy
+    public synchronized void close() throws InterruptedException {
+        if (!this.running) {
+            return;
+        }
+        this.running = false;
+        LockSupport.unpark(this.writer);
+        this.writer.join();
+    }
+
+    /**
+     * Queues the record to be written, without blocking.
+     *
+     * @param record Record to write.
+     */
+    public void append(AuditRecord record) {
+        this.pending.offer(record);
+        LockSupport.unpark(this.writer);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChange(BookingChangeEvent event) {
+        BookingSummary booking = event.booking();
+        // Bookings moved to another room are announced to both rooms, but
+        // only recorded once. Deleted rooms are recorded from RoomChangeEvent.
+        if (booking == null || booking.roomId() != event.roomId()) {
+            return;
+        }
+        AuditAction action = switch (event.type()) {
+            case CREATED -> AuditAction.BOOKING_CREATED;
+            case UPDATED -> AuditAction.BOOKING_UPDATED;
+            case RECURRING_CREATED -> AuditAction.RECURRING_BOOKING_CREATED;
+            case RECURRING_DELETED -> AuditAction.RECURRING_BOOKING_DELETED;
+            default -> AuditAction.BOOKING_DELETED;
+        };
+        // Recurring bookings are recorded with their id and first occurrence.
+        long bookingId = booking.id() != null ? booking.id() : booking.recurringBookingId();
+        this.append(AuditRecord.ofBooking(action, event.roomId(), bookingId, booking.startDate(), booking.endDate(), booking.organizer()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRoomChange(RoomChangeEvent event) {
+        AuditAction action = switch (event.type()) {
+            case CREATED -> AuditAction.ROOM_CREATED;
+            case UPDATED -> AuditAction.ROOM_UPDATED;
+            case DELETED -> AuditAction.ROOM_DELETED;
+        };
+        this.append(AuditRecord.ofRoom(action, event.roomId(), event.name()));
+    }
+
+    /**
+     * Returns the records written between {@code startDate} and
+     * {@code endDate} (<i>both included</i>), in the order they were written.
+     * Records still waiting to be written aren't included.
+     *
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @param limit Maximum number of records to return.
+     * @return The records.
+     * @throws IOException If the segments can't be read.
+     */
+    public List<AuditRecord> read(LocalDateTime startDate, LocalDateTime endDate, int limit) throws IOException {
+        long from = AuditRecord.toEpochMillis(startDate);
+        long to = AuditRecord.toEpochMillis(endDate);
+        List<AuditRecord> records = new ArrayList<>();
+
+        List<Long> segments = this.listSegments();
+        for (int i = 0; i < segments.size() && records.size() < limit; i++) {
+            MappedByteBuffer buffer = this.mapForReading(segments.get(i));
+            if (buffer == null) {
+                // Removed while reading, after the writer rotated.
+                continue;
+            }
+            int written = countWritten(buffer, buffer.capacity() / AuditRecord.SIZE);
+            if (written == 0) {
+                continue;
+            }
+            if (AuditRecord.readEpochMillis(buffer, 0) > to) {
+                break;
+            }
+            if (AuditRecord.readEpochMillis(buffer, (written - 1) * AuditRecord.SIZE) < from) {
+                continue;
+            }
+
+            buffer.position(firstAtOrAfter(buffer, written, from) * AuditRecord.SIZE);
+            while (buffer.position() < written * AuditRecord.SIZE && records.size() < limit) {
+                AuditRecord record = AuditRecord.readFrom(buffer);
+                if (record == null) {
+                    // Torn by a crash, the writer continues after it.
+                    continue;
+                }
+                if (record.epochMillis() > to) {
+                    return records;
+                }
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private void writeRecords() {
+        while (this.running || !this.pending.isEmpty()) {
+            AuditRecord record = this.pending.poll();
+            try {
+                if (record == null) {
+                    this.force();
+                    LockSupport.parkNanos(this, FORCE_INTERVAL_NANOS);
+                    continue;
+                }
+                this.write(record);
+                if (System.nanoTime() - this.lastForce > FORCE_INTERVAL_NANOS) {
+                    this.force();
+                }
+            } catch (IOException | RuntimeException e) {
+                log.log(Level.SEVERE, e, () -> String.format("Couldn't write to the audit journal, record lost: %s", record));
+            }
+        }
+        this.force();
+    }
+
+    private void write(AuditRecord record) throws IOException {
+        if (!this.segment.hasRemaining()) {
+            this.rotate();
+        }
+        this.lastTimestamp = Math.max(this.lastTimestamp, record.epochMillis());
+        record.withTimestamp(this.lastTimestamp).writeTo(this.segment);
+        this.dirty = true;
+    }
+
+    private void force() {
+        if (this.dirty) {
+            this.segment.force();
+            this.dirty = false;
+        }
+        this.lastForce = System.nanoTime();
+    }
+
+    private void rotate() throws IOException {
+        this.force();
+        this.openSegment(this.segmentNumber + 1);
+        log.info(() -> String.format("Audit journal rotated to segment %d.", this.segmentNumber));
+
+        if (this.maxSegments <= 0) {
+            return;
+        }
+        List<Long> segments = this.listSegments();
+        for (int i = 0; i < segments.size() - this.maxSegments; i++) {
+            Files.deleteIfExists(this.segmentPath(segments.get(i)));
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        try (FileChannel channel = FileChannel.open(this.segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after closing the channel.
+            this.segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) this.segmentRecords * AuditRecord.SIZE);
+        }
+        this.segmentNumber = number;
+    }
+
+    private MappedByteBuffer mapForReading(long number) throws IOException {
+        try (FileChannel channel = FileChannel.open(this.segmentPath(number), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files
+                    .map(file -> SEGMENT_PATTERN.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return this.directory.resolve(String.format(SEGMENT_FORMAT, number));
+    }
+
+    /**
+     * Records are written one after the other, so the written ones are a
+     * prefix of the segment.
+     *
+     * @return The number of records written in the segment.
+     */
+    private static int countWritten(MappedByteBuffer buffer, int capacity) {
+        int low = 0;
+        int high = capacity;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (AuditRecord.isWritten(buffer, middle * AuditRecord.SIZE)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return The index of the first of the {@code written} records of the
+     * segment with a timestamp greater or equal to {@code epochMillis}.
+     */
+    private static int firstAtOrAfter(MappedByteBuffer buffer, int written, long epochMillis) {
+        int low = 0;
+        int high = written;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (AuditRecord.readEpochMillis(buffer, middle * AuditRecord.SIZE) < epochMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,198 @@
+package me.folgue.salas.audit;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32;
+
+/**
+ * Entry of the {@link AuditJournal}, stored as a fixed record of
+ * {@link #SIZE} bytes:
+ * <pre>
+ * offset  size  field
+ *      0     1  marker, 1 if the record has been written (0 otherwise)
+ *      1     1  code of the action
+ *      2     2  length of the subject, in bytes
+ *      4     4  CRC32 of the bytes 8 - 127
+ *      8     8  timestamp (milliseconds since the epoch)
+ *     16     8  id of the room
+ *     24     8  id of the booking (0 for room actions)
+ *     32     8  start date of the booking (seconds since the epoch, local time)
+ *     40     8  end date of the booking (seconds since the epoch, local time)
+ *     48    80  subject (UTF-8, truncated)
+ * </pre>
+ *
+ * @param timestamp When the mutation was committed.
+ * @param action Mutation made.
+ * @param roomId Id of the room.
+ * @param bookingId Id of the booking, {@code null} for room actions.
+ * @param startDate Start date of the booking, {@code null} for room actions.
+ * @param endDate End date of the booking, {@code null} for room actions.
+ * @param subject Organizer of the booking or name of the room (<i>truncated
+ * to {@link #MAX_SUBJECT_BYTES} bytes</i>).
+ * @author folgue
+ */
+public record AuditRecord(
+        LocalDateTime timestamp,
+        AuditAction action,
+        long roomId,
+        Long bookingId,
+        LocalDateTime startDate,
+        LocalDateTime endDate,
+        String subject
+) {
+
+    public static final int SIZE = 128;
+    public static final int MAX_SUBJECT_BYTES = 80;
+
+    private static final byte WRITTEN = 1;
+    private static final int CHECKED_OFFSET = 8;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    public static AuditRecord ofBooking(AuditAction action, long roomId, long bookingId, LocalDateTime startDate, LocalDateTime endDate, String organizer) {
+        return new AuditRecord(LocalDateTime.now(), action, roomId, bookingId, startDate, endDate, organizer);
+    }
+
+    public static AuditRecord ofRoom(AuditAction action, long roomId, String name) {
+        return new AuditRecord(LocalDateTime.now(), action, roomId, null, null, null, name);
+    }
+
+    /**
+     * @param epochMillis New timestamp, in milliseconds since the epoch.
+     * @return A copy of the record with the given timestamp.
+     */
+    public AuditRecord withTimestamp(long epochMillis) {
+        return new AuditRecord(fromEpochMillis(epochMillis), this.action, this.roomId, this.bookingId, this.startDate, this.endDate, this.subject);
+    }
+
+    /**
+     * @return The timestamp in milliseconds since the epoch.
+     */
+    public long epochMillis() {
+        return toEpochMillis(this.timestamp);
+    }
+
+    /**
+     * Writes the record at the current position of the buffer, advancing it
+     * {@link #SIZE} bytes.
+     *
+     * @param buffer Buffer with at least {@link #SIZE} bytes remaining.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        byte[] record = new byte[SIZE];
+        ByteBuffer encoded = ByteBuffer.wrap(record);
+        byte[] subjectBytes = truncate(this.subject);
+
+        encoded.put(1, this.action.getCode());
+        encoded.putShort(2, (short) subjectBytes.length);
+        encoded.putLong(8, this.epochMillis());
+        encoded.putLong(16, this.roomId);
+        encoded.putLong(24, this.bookingId == null ? 0 : this.bookingId);
+        encoded.putLong(32, this.startDate == null ? NO_DATE : this.startDate.toEpochSecond(ZoneOffset.UTC));
+        encoded.putLong(40, this.endDate == null ? NO_DATE : this.endDate.toEpochSecond(ZoneOffset.UTC));
+        encoded.put(48, subjectBytes);
+        encoded.putInt(4, checksum(record));
+
+        // The marker goes last, so readers never see a record marked as
+        // written before its contents (the checksum covers the rest).
+        int position = buffer.position();
+        buffer.put(position + 1, record, 1, SIZE - 1);
+        buffer.put(position, WRITTEN);
+        buffer.position(position + SIZE);
+    }
+
+    /**
+     * Reads the record at the current position of the buffer, advancing it
+     * {@link #SIZE} bytes.
+     *
+     * @param buffer Buffer with at least {@link #SIZE} bytes remaining.
+     * @return The record, or {@code null} if it hasn't been written (<i>or
+     * was only written partially</i>).
+     */
+    public static AuditRecord readFrom(ByteBuffer buffer) {
+        byte[] record = new byte[SIZE];
+        buffer.get(record);
+        ByteBuffer encoded = ByteBuffer.wrap(record);
+
+        AuditAction action = AuditAction.fromCode(encoded.get(1));
+        int subjectLength = encoded.getShort(2);
+        if (encoded.get(0) != WRITTEN || action == null
+                || subjectLength < 0 || subjectLength > MAX_SUBJECT_BYTES
+                || encoded.getInt(4) != checksum(record)) {
+            return null;
+        }
+
+        long bookingId = encoded.getLong(24);
+        long startDate = encoded.getLong(32);
+        long endDate = encoded.getLong(40);
+        return new AuditRecord(
+                fromEpochMillis(encoded.getLong(8)),
+                action,
+                encoded.getLong(16),
+                bookingId == 0 ? null : bookingId,
+                startDate == NO_DATE ? null : LocalDateTime.ofEpochSecond(startDate, 0, ZoneOffset.UTC),
+                endDate == NO_DATE ? null : LocalDateTime.ofEpochSecond(endDate, 0, ZoneOffset.UTC),
+                new String(record, 48, subjectLength, StandardCharsets.UTF_8)
+        );
+    }
+
+    /**
+     * Reads the timestamp of the record at the given position of the buffer,
+     * without checking if it has been written.
+     *
+     * @param buffer Buffer of the record.
+     * @param offset Position of the record.
+     * @return The timestamp in milliseconds since the epoch.
+     */
+    static long readEpochMillis(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + 8);
+    }
+
+    /**
+     * @param buffer Buffer of the record.
+     * @param offset Position of the record.
+     * @return {@code true} if the record at the given position has been
+     * written, {@code false} if it's empty.
+     */
+    static boolean isWritten(ByteBuffer buffer, int offset) {
+        return buffer.get(offset) == WRITTEN;
+    }
+
+    static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime fromEpochMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, CHECKED_OFFSET, SIZE - CHECKED_OFFSET);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Encodes the subject in UTF-8, dropping whole characters until it fits
+     * in {@link #MAX_SUBJECT_BYTES} bytes.
+     */
+    private static byte[] truncate(String subject) {
+        if (subject == null) {
+            return new byte[0];
+        }
+        // Every character takes at least a byte.
+        int length = Math.min(subject.length(), MAX_SUBJECT_BYTES);
+        if (length < subject.length() && Character.isLowSurrogate(subject.charAt(length))) {
+            length--;
+        }
+        byte[] bytes = subject.substring(0, length).getBytes(StandardCharsets.UTF_8);
+        while (bytes.length > MAX_SUBJECT_BYTES) {
+            length = Character.isLowSurrogate(subject.charAt(length - 1)) ? length - 2 : length - 1;
+            bytes = subject.substring(0, length).getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,65 @@
+package me.folgue.salas.audit;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import me.folgue.salas.audit.exceptions.AuditInvalidRangeException;
+import me.folgue.salas.common.KeysetPage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Read access to the {@link AuditJournal}.
+ *
+ * @author folgue
+ */
+@RestController
+@RequestMapping("/auditoria/")
+@ConditionalOnProperty(name = "salas.audit.enabled", havingValue = "true")
+public class AuditRestController {
+
+    private final AuditJournal auditJournal;
+
+    public AuditRestController(AuditJournal auditJournal) {
+        this.auditJournal = auditJournal;
+    }
+
+    /**
+     * Returns the mutations recorded between {@code startDate} and
+     * {@code endDate} (<i>both included</i>).
+     *
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @param limit Maximum number of records to return (<i>up to
+     * {@link KeysetPage#MAX_LIMIT}</i>).
+     * @return The first {@code limit} records of the range, in the order they
+     * were recorded.
+     * @throws AuditInvalidRangeException If {@code endDate} is before
+     * {@code startDate}.
+     * @throws IOException If the journal can't be read.
+     */
+    @GetMapping("/")
+    public List<AuditRecord> getRecords(
+            @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime endDate,
+            @RequestParam(defaultValue = "100") int limit
+    ) throws AuditInvalidRangeException, IOException {
+        if (endDate.isBefore(startDate)) {
+            throw new AuditInvalidRangeException(startDate, endDate);
+        }
+        return this.auditJournal.read(startDate, endDate, KeysetPage.clampLimit(limit));
+    }
+
+    @ExceptionHandler(AuditInvalidRangeException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidRange(AuditInvalidRangeException e) {
+        return e.getMessage();
+    }
+}
@@ -0,0 +1,12 @@
+package me.folgue.salas.audit.exceptions;
+
+/**
+ *
+ * @author folgue
+ */
+public abstract class AuditControllerException extends Exception {
+
+    public AuditControllerException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,16 @@
+package me.folgue.salas.audit.exceptions;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents the scenario where the journal has been requested for a range of
+ * time that ends before it starts.
+ *
+ * @author folgue
+ */
+public class AuditInvalidRangeException extends AuditControllerException {
+
+    public AuditInvalidRangeException(LocalDateTime startDate, LocalDateTime endDate) {
+        super(String.format("El rango de fechas '%s' - '%s' no es valido", startDate, endDate));
+    }
+}
@@ -0,0 +1,51 @@
+package me.folgue.salas.bookings;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * {@link Booking} that ended before the retention of the archive, moved out
+ * of the booking table by {@link BookingArchiver}. It keeps the id it had,
+ * and only references its room by id, as the room may have been removed
+ * since.
+ *
+ * @author folgue
+ */
+@Entity
+@Table(name = "booking_archive", indexes = {
+    // Backs the history queries of ArchivedBookingRepository.
+    @Index(name = "idx_booking_archive_start_date", columnList = "start_date, id"),
+    @Index(name = "idx_booking_archive_room_dates", columnList = "room_id, start_date, end_date")
+})
+@Immutable
+@NoArgsConstructor
+@Data
+public class ArchivedBooking {
+
+    @Id
+    private Long id;
+
+    private String organizer;
+
+    @Column(nullable = false)
+    private LocalDateTime startDate;
+
+    @Column(nullable = false)
+    private LocalDateTime endDate;
+
+    @Column(name = "room_id")
+    private Long roomId;
+
+    /**
+     * When the booking was moved to the archive.
+     */
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,91 @@
+package me.folgue.salas.bookings;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * @see ArchivedBooking
+ * @author folgue
+ */
+@Repository
+public interface ArchivedBookingRepository extends JpaRepository<ArchivedBooking, Long> {
+
+    /**
+     * Copies the bookings with the given ids to the archive with a single
+     * statement, without loading them.
+     *
+     * @param ids Ids of the bookings.
+     * @param archivedAt When the bookings are archived.
+     * @return The number of bookings copied.
+     */
+    @Modifying
+    @Query("""
+           INSERT INTO ArchivedBooking (id, organizer, startDate, endDate, roomId, archivedAt)
+           SELECT b.id, b.organizer, b.startDate, b.endDate, b.room.id, :archivedAt
+           FROM Booking b
+           WHERE b.id IN :ids
+           """)
+    public int archive(@Param("ids") Collection<Long> ids, @Param("archivedAt") LocalDateTime archivedAt);
+
+    /**
+     * Returns the first page of the archived bookings that have a conflict
+     * with the range of time, sorted by their start date and id.
+     *
+     * @param roomId Id of the room of the bookings, or {@code null} for all the
+     * rooms.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @param limit Maximum number of bookings to return.
+     * @return The bookings of the page.
+     */
+    @Query("""
+           SELECT a FROM ArchivedBooking a
+           WHERE a.roomId = COALESCE(:roomId, a.roomId)
+           AND a.startDate <= :endDate
+           AND a.endDate >= :startDate
+           ORDER BY a.startDate, a.id
+           """)
+    public List<ArchivedBooking> findOverlapping(
+            @Param("roomId") Long roomId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            Limit limit
+    );
+
+    /**
+     * Same as {@link #findOverlapping}, but returning the page after the
+     * given booking.
+     *
+     * @param roomId Id of the room of the bookings, or {@code null} for all the
+     * rooms.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @param afterStartDate Start of the last booking of the previous page.
+     * @param afterId Id of the last booking of the previous page.
+     * @param limit Maximum number of bookings to return.
+     * @return The bookings of the page.
+     */
+    @Query("""
+           SELECT a FROM ArchivedBooking a
+           WHERE a.roomId = COALESCE(:roomId, a.roomId)
+           AND a.startDate <= :endDate
+           AND a.endDate >= :startDate
+           AND (a.startDate > :afterStartDate OR (a.startDate = :afterStartDate AND a.id > :afterId))
+           ORDER BY a.startDate, a.id
+           """)
+    public List<ArchivedBooking> findOverlappingAfter(
+            @Param("roomId") Long roomId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("afterStartDate") LocalDateTime afterStartDate,
+            @Param("afterId") Long afterId,
+            Limit limit
+    );
+}
@@ -5,8 +5,15 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.time.LocalDateTime;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -20,13 +27,26 @@ import me.folgue.salas.rooms.Room;
  * @author Folgue02
  */
 @Entity
+@Table(indexes = {
+    // Backs the overlap queries of BookingRepository.
+    @Index(name = "idx_booking_room_dates", columnList = "room_id, start_date, end_date"),
+    // Backs the pages of bookings sorted by their start date.
+    @Index(name = "idx_booking_start_date", columnList = "start_date, id"),
+    // Backs the pages of bookings of an organizer.
+    @Index(name = "idx_booking_organizer_start_date", columnList = "organizer, start_date, id")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
 public class Booking {
 
+    /**
+     * Generated from a sequence, reserving blocks of 50 ids, so the inserts of
+     * many bookings can be sent to the database in JDBC batches.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_seq")
+    @SequenceGenerator(name = "booking_seq", sequenceName = "booking_seq", allocationSize = 50)
     private Long id;
 
     @Nonnull
@@ -42,6 +62,21 @@ public class Booking {
     @JoinColumn(name = "room_id")
     private Room room;
 
+    /**
+     * Incremented every time the booking is updated.
+     */
+    @Version
+    @JsonIgnore
+    private Long version;
+
+    /**
+     * Id of the {@link RecurringBooking} this booking is an occurrence of,
+     * only set on the occurrences computed from it, which aren't stored.
+     */
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long recurringBookingId;
+
     public Booking(String organizer, LocalDateTime startDate, LocalDateTime endDate, Room room) {
         this.organizer = organizer;
         this.startDate = startDate;
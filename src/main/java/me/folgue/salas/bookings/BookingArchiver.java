@@ -0,0 +1,81 @@
+package me.folgue.salas.bookings;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the bookings that ended more than {@code salas.bookings.archive.retention}
+ * ago to the archive (<i>see {@link ArchivedBooking}</i>) every night, in
+ * batches of {@code salas.bookings.archive.batch-size}, so the booking table
+ * (<i>and the calendars, conflict checks and in-memory indexes built from
+ * it</i>) only keeps the recent and upcoming bookings. The archived bookings
+ * can still be read from {@code /reservas/historial}.
+ * <br>
+ * If the booking table is partitioned, the partitions left empty are dropped
+ * afterwards.
+ * <br>
+ * When several instances of the API run it at the same time, only one of
+ * them archives the bookings, the others find the job locked and stop.
+ * <br>
+ * <b>NOTE</b>: It has to be enabled with
+ * {@code salas.bookings.archive.enabled=true}, as the bookings archived are
+ * no longer part of the calendars.
+ *
+ * @see BookingService#archiveEndedBefore
+ * @author folgue
+ */
+@Component
+@ConditionalOnProperty(name = "salas.bookings.archive.enabled", havingValue = "true")
+@Log
+public class BookingArchiver {
+
+    /**
+     * Name of the job, used to lock it (<i>see {@link me.folgue.salas.common.JobLock}</i>).
+     */
+    public static final String JOB = "booking-archive";
+
+    private final BookingService bookingService;
+    private final Optional<BookingPartitioning> partitioning;
+    private final Duration retention;
+    private final int batchSize;
+
+    public BookingArchiver(
+            BookingService bookingService,
+            Optional<BookingPartitioning> partitioning,
+            @Value("${salas.bookings.archive.retention:365d}") Duration retention,
+            @Value("${salas.bookings.archive.batch-size:1000}") int batchSize
+    ) {
+        this.bookingService = bookingService;
+        this.partitioning = partitioning;
+        this.retention = retention;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Archives the bookings that ended before the retention, each batch in a
+     * transaction of its own.
+     *
+     * @return The number of bookings archived.
+     */
+    @Scheduled(cron = "${salas.bookings.archive.cron:0 30 0 * * *}")
+    public int archive() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(this.retention);
+        int archived = 0;
+        int batch;
+        do {
+            batch = this.bookingService.archiveEndedBefore(cutoff, this.batchSize);
+            archived += batch;
+        } while (batch == this.batchSize);
+
+        int dropped = this.partitioning.map(p -> p.dropPartitionsBefore(cutoff)).orElse(0);
+        int total = archived;
+        log.info(() -> String.format("%d bookings that ended before %s archived, %d partitions dropped.", total, cutoff, dropped));
+        return archived;
+    }
+}
@@ -0,0 +1,30 @@
+package me.folgue.salas.bookings;
+
+/**
+ * Result of the creation of one of the bookings of a batch.
+ *
+ * @param index Position of the booking in the batch.
+ * @param status Whether the booking was created or why it wasn't.
+ * @param booking The booking created, or {@code null} if it wasn't.
+ * @param error Description of the reason why the booking wasn't created, or
+ * {@code null} if it was.
+ * @author folgue
+ */
+public record BookingBatchResult(int index, Status status, Booking booking, String error) {
+
+    public enum Status {
+        CREATED,
+        INVALID_REQUEST,
+        INVALID_DATES,
+        ROOM_NOT_FOUND,
+        CONFLICT
+    }
+
+    public static BookingBatchResult created(int index, Booking booking) {
+        return new BookingBatchResult(index, Status.CREATED, booking, null);
+    }
+
+    public static BookingBatchResult failed(int index, Status status, String error) {
+        return new BookingBatchResult(index, status, null, error);
+    }
+}
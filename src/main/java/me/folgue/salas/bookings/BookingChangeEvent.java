@@ -0,0 +1,44 @@
+package me.folgue.salas.bookings;
+
+/**
+ * Change made to the bookings of a room, published once the change has been
+ * committed.
+ *
+ * @param type Type of the change.
+ * @param roomId Id of the room of the bookings changed.
+ * @param booking Booking created, updated or deleted (<i>as it was before
+ * being deleted</i>), the first occurrence of a recurring booking, or
+ * {@code null} if the room has been deleted.
+ * @see BookingEventBroadcaster
+ * @author folgue
+ */
+public record BookingChangeEvent(Type type, long roomId, BookingSummary booking) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        /**
+         * A {@link RecurringBooking} has been created, the booking of the
+         * event is its first occurrence.
+         */
+        RECURRING_CREATED,
+        /**
+         * A {@link RecurringBooking} has been deleted, along with all its
+         * occurrences.
+         */
+        RECURRING_DELETED,
+        /**
+         * The room has been deleted, along with all its bookings.
+         */
+        ROOM_DELETED
+    }
+
+    public static BookingChangeEvent of(Type type, BookingSummary booking) {
+        return new BookingChangeEvent(type, booking.roomId(), booking);
+    }
+
+    public static BookingChangeEvent roomDeleted(long roomId) {
+        return new BookingChangeEvent(Type.ROOM_DELETED, roomId, null);
+    }
+}
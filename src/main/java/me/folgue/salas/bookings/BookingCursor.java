@@ -0,0 +1,71 @@
+package me.folgue.salas.bookings;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import me.folgue.salas.bookings.exceptions.BookingInvalidPageRequestException;
+
+/**
+ * Position of a {@link Booking} in a list of bookings sorted by their start
+ * date (<i>and id, to sort the bookings starting at the same time</i>), used
+ * as the cursor of the pages of such lists.
+ * <br>
+ * Its textual form is {@code <startDate>_<id>}, such as
+ * {@code 2024-07-21T20:20_15}.
+ *
+ * @param startDate Start of the booking.
+ * @param id Id of the booking.
+ * @author folgue
+ */
+public record BookingCursor(LocalDateTime startDate, long id) {
+
+    private static final char SEPARATOR = '_';
+
+    public static BookingCursor of(Booking booking) {
+        return new BookingCursor(booking.getStartDate(), booking.getId());
+    }
+
+    public static BookingCursor of(ArchivedBooking booking) {
+        return new BookingCursor(booking.getStartDate(), booking.getId());
+    }
+
+    /**
+     * Parses the textual form of a cursor.
+     *
+     * @param cursor Textual form of the cursor.
+     * @return The cursor parsed.
+     * @throws BookingInvalidPageRequestException If the cursor doesn't have a
+     * valid format.
+     */
+    public static BookingCursor parse(String cursor) throws BookingInvalidPageRequestException {
+        int separator = cursor.lastIndexOf(SEPARATOR);
+        try {
+            return new BookingCursor(
+                    LocalDateTime.parse(cursor.substring(0, separator)),
+                    Long.parseLong(cursor.substring(separator + 1))
+            );
+        } catch (DateTimeParseException | NumberFormatException | IndexOutOfBoundsException e) {
+            throw new BookingInvalidPageRequestException(String.format("El cursor '%s' no es valido", cursor));
+        }
+    }
+
+    /**
+     * Parses a cursor of a list of bookings sorted by their id (<i>just the id
+     * of the last booking</i>).
+     *
+     * @param cursor Textual form of the cursor.
+     * @return The id of the booking.
+     * @throws BookingInvalidPageRequestException If the cursor isn't a number.
+     */
+    public static long parseId(String cursor) throws BookingInvalidPageRequestException {
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new BookingInvalidPageRequestException(String.format("El cursor '%s' no es valido", cursor));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.startDate.toString() + SEPARATOR + this.id;
+    }
+}
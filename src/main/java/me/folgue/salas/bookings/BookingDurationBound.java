@@ -0,0 +1,97 @@
+package me.folgue.salas.bookings;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounds how long before a range of time a booking with a conflict can start,
+ * by the duration of the longest booking stored (<i>see
+ * {@link BookingMaxDuration}</i>), so the overlap queries of
+ * {@link BookingRepository} also filter the bookings by start date from
+ * below, which lets PostgreSQL skip the partitions of the months before it
+ * (<i>see {@link BookingPartitioning}</i>) and read less of the
+ * {@code (room_id, start_date, end_date)} index.
+ * <br>
+ * The queries read the duration from the database (<i>through
+ * {@code @bookingDurationBound} in their SpEL expressions</i>) in their own
+ * transaction, as a different instance of the API may have raised it, and the
+ * duration is raised in the transaction of the booking, so a query that sees
+ * the booking sees the duration too.
+ *
+ * @author folgue
+ */
+@Component
+public class BookingDurationBound {
+
+    private final BookingRepository repository;
+    /**
+     * Longest duration known to be committed, only used to skip the update of
+     * the stored one, never to bound the queries.
+     */
+    private final AtomicLong committedSeconds = new AtomicLong();
+
+    public BookingDurationBound(BookingRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @param startDate Start of a range of time, or {@code null}.
+     * @return The earliest start of a stored booking that has a conflict with
+     * the range of time, or {@code null} if {@code startDate} is.
+     */
+    public LocalDateTime earliestStartOf(LocalDateTime startDate) {
+        if (startDate == null) {
+            return null;
+        }
+
+        long seconds = this.repository.findMaxDurationSeconds();
+        // A duration raised by the current transaction isn't committed yet.
+        if (!TransactionSynchronizationManager.hasResource(this)) {
+            this.committedSeconds.accumulateAndGet(seconds, Math::max);
+        }
+        return BookingUtils.earliestStartOf(startDate, Duration.ofSeconds(seconds));
+    }
+
+    /**
+     * Raises the duration stored to the one of the longest of the bookings,
+     * in the current transaction, if it's longer, which is only written when
+     * the bookings last longer than any other one before.
+     *
+     * @param bookings Bookings saved.
+     */
+    public void extendTo(Collection<Booking> bookings) {
+        long seconds = bookings.stream()
+                .mapToLong(booking -> BookingUtils.durationSeconds(booking.getStartDate(), booking.getEndDate()))
+                .max()
+                .orElse(0);
+        if (seconds <= this.committedSeconds.get()) {
+            return;
+        }
+
+        this.repository.raiseMaxDurationSeconds(seconds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.committedSeconds.accumulateAndGet(seconds, Math::max);
+            return;
+        }
+        if (!TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(BookingDurationBound.this);
+                }
+            });
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                BookingDurationBound.this.committedSeconds.accumulateAndGet(seconds, Math::max);
+            }
+        });
+    }
+}
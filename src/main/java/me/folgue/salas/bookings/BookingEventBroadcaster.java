@@ -0,0 +1,324 @@
+package me.folgue.salas.bookings;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Sends the {@link BookingChangeEvent}s to the clients subscribed to them as
+ * Server-Sent Events, once the changes have been committed.
+ * <br>
+ * Every subscriber has a queue of at most
+ * {@code salas.bookings.events.buffer-size} events, which is sent to the
+ * client from a pool of threads, so a slow client can't delay the changes
+ * nor the other clients: if its queue gets full, or writing an event to it
+ * takes longer than {@code salas.bookings.events.write-timeout}, it's
+ * disconnected, and it can resume from the last event it received with
+ * {@code Last-Event-ID}, as the last {@code salas.bookings.events.history-size}
+ * events are kept in memory. If the events after {@code Last-Event-ID} aren't
+ * available anymore a {@code reset} event is sent, meaning that the bookings
+ * have to be requested again.
+ * <br>
+ * Writing to a client blocks the thread until the client reads the event,
+ * so the pool has {@code salas.bookings.events.sender-threads} threads, and
+ * the subscribers with events to send while all of them are writing wait in
+ * a queue of at most {@code salas.bookings.events.sender-queue-size}
+ * subscribers. The subscribers that don't fit in it are disconnected, so
+ * slow clients can't take more threads nor memory than those. The thread of
+ * a client disconnected while writing is released once the write fails.
+ *
+ * @author folgue
+ */
+@Component
+@Log
+public class BookingEventBroadcaster {
+
+    /**
+     * Name of the event sent when the events missed by a client aren't
+     * available.
+     */
+    public static final String RESET_EVENT = "reset";
+
+    private final int bufferSize;
+    private final int historySize;
+    private final Duration timeout;
+    private final long writeTimeoutNanos;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Deque<SequencedEvent> history = new ArrayDeque<>();
+    private final ExecutorService sender;
+
+    /**
+     * Id of the last event, which starts from the current time so the ids
+     * keep growing after a restart.
+     */
+    private long lastEventId = System.currentTimeMillis() * 1000;
+
+    public BookingEventBroadcaster(
+            @Value("${salas.bookings.events.buffer-size:64}") int bufferSize,
+            @Value("${salas.bookings.events.history-size:256}") int historySize,
+            @Value("${salas.bookings.events.timeout:30m}") Duration timeout,
+            @Value("${salas.bookings.events.sender-threads:8}") int senderThreads,
+            @Value("${salas.bookings.events.sender-queue-size:1024}") int senderQueueSize,
+            @Value("${salas.bookings.events.write-timeout:10s}") Duration writeTimeout
+    ) {
+        this.bufferSize = bufferSize;
+        this.historySize = historySize;
+        this.timeout = timeout;
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+        AtomicInteger threads = new AtomicInteger();
+        // Each subscriber is queued at most once (see Subscriber#scheduleSend),
+        // the ones that don't fit are rejected and disconnected.
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(senderQueueSize), runnable -> {
+            Thread thread = new Thread(runnable, "booking-events-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        this.sender = pool;
+    }
+
+    /**
+     * Subscribes a client to the changes of the bookings.
+     *
+     * @param roomId Id of the room whose changes are sent, or {@code null} to
+     * send the changes of every room.
+     * @param lastEventId Id of the last event received by the client, the
+     * events after it are sent first (<i>optional</i>).
+     * @return The emitter of the events of the client.
+     */
+    public SseEmitter subscribe(Long roomId, Long lastEventId) {
+        SseEmitter emitter = this.createEmitter(this.timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, roomId);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+
+        // Prevents events from being published between the replay and the
+        // subscription.
+        synchronized (this) {
+            if (lastEventId != null) {
+                this.replay(subscriber, lastEventId);
+            }
+            this.subscribers.add(subscriber);
+        }
+        return emitter;
+    }
+
+    /**
+     * Sends the event to the subscribers interested in it.
+     *
+     * @param event Change made to the bookings.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void publish(BookingChangeEvent event) {
+        SequencedEvent sequenced = new SequencedEvent(++this.lastEventId, event);
+        this.history.addLast(sequenced);
+        if (this.history.size() > this.historySize) {
+            this.history.removeFirst();
+        }
+
+        for (Subscriber subscriber : this.subscribers) {
+            if (subscriber.accepts(event)) {
+                subscriber.offer(sequenced);
+            }
+        }
+    }
+
+    /**
+     * Disconnects the subscribers that have been writing the same event for
+     * longer than {@code salas.bookings.events.write-timeout}.
+     *
+     * @return The number of subscribers disconnected.
+     */
+    @Scheduled(fixedDelayString = "${salas.bookings.events.write-check-interval:PT1S}")
+    public int disconnectStuckSubscribers() {
+        long now = System.nanoTime();
+        int disconnected = 0;
+        for (Subscriber subscriber : this.subscribers) {
+            if (subscriber.isStuck(now)) {
+                log.warning(String.format("Disconnecting a subscriber to the booking events that didn't read an event in %d ms.",
+                        TimeUnit.NANOSECONDS.toMillis(this.writeTimeoutNanos)));
+                subscriber.close();
+                disconnected++;
+            }
+        }
+        return disconnected;
+    }
+
+    /**
+     * @return The number of clients subscribed.
+     */
+    public int getSubscriberCount() {
+        return this.subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.subscribers.forEach(Subscriber::close);
+        this.sender.shutdownNow();
+    }
+
+    /**
+     * Creates the emitter of a subscriber.
+     *
+     * @param timeoutMillis Time the emitter is kept open for.
+     * @return The emitter.
+     */
+    protected SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void replay(Subscriber subscriber, long lastEventId) {
+        long firstAvailableId = this.history.isEmpty() ? this.lastEventId + 1 : this.history.peekFirst().id();
+        if (lastEventId + 1 < firstAvailableId || lastEventId > this.lastEventId) {
+            subscriber.offer(new SequencedEvent(this.lastEventId, null));
+            return;
+        }
+
+        for (SequencedEvent event : this.history) {
+            if (event.id() > lastEventId && subscriber.accepts(event.event())) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    /**
+     * @param id Id of the event.
+     * @param event Change made, {@code null} for a {@link #RESET_EVENT}.
+     */
+    private record SequencedEvent(long id, BookingChangeEvent event) {
+
+        SseEmitter.SseEventBuilder toSse() {
+            SseEmitter.SseEventBuilder sse = SseEmitter.event().id(Long.toString(this.id));
+            if (this.event == null) {
+                return sse.name(RESET_EVENT).data("");
+            }
+            return sse.name(this.event.type().name().toLowerCase()).data(this.event, MediaType.APPLICATION_JSON);
+        }
+    }
+
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Long roomId;
+        private final BlockingQueue<SequencedEvent> queue;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        /**
+         * {@link System#nanoTime()} when the event being written started to
+         * be written, or {@code 0} if no event is being written.
+         */
+        private volatile long writeStartedAt;
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, Long roomId) {
+            this.emitter = emitter;
+            this.roomId = roomId;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        boolean accepts(BookingChangeEvent event) {
+            return this.roomId == null || this.roomId == event.roomId();
+        }
+
+        /**
+         * Queues the event without blocking, disconnecting the subscriber if
+         * its queue is full.
+         */
+        void offer(SequencedEvent event) {
+            if (this.closed) {
+                return;
+            }
+            if (!this.queue.offer(event)) {
+                log.warning(String.format("Disconnecting a subscriber to the booking events that fell %d events behind.", bufferSize));
+                this.close();
+                return;
+            }
+            this.scheduleSend();
+        }
+
+        private void scheduleSend() {
+            if (this.sending.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::send);
+                } catch (RejectedExecutionException e) {
+                    this.sending.set(false);
+                    if (!sender.isShutdown()) {
+                        log.warning("Disconnecting a subscriber to the booking events, as every sender is busy and the queue of senders is full.");
+                    }
+                    this.close();
+                }
+            }
+        }
+
+        private void send() {
+            try {
+                SequencedEvent event;
+                while (!this.closed && (event = this.queue.poll()) != null) {
+                    this.writeStartedAt = System.nanoTime();
+                    this.emitter.send(event.toSse());
+                    this.writeStartedAt = 0;
+                }
+            } catch (IOException | IllegalStateException e) {
+                this.close();
+            } finally {
+                this.writeStartedAt = 0;
+                this.sending.set(false);
+            }
+
+            if (this.closed) {
+                // Closed while writing, the emitter was left to be completed here.
+                this.complete();
+            } else if (!this.queue.isEmpty()) {
+                // Events queued after the last poll, but before releasing the flag.
+                this.scheduleSend();
+            }
+        }
+
+        boolean isStuck(long now) {
+            long startedAt = this.writeStartedAt;
+            return startedAt != 0 && now - startedAt > writeTimeoutNanos;
+        }
+
+        void close() {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            subscribers.remove(this);
+            this.queue.clear();
+            // The emitter is locked while an event is being written to it,
+            // so it's completed by the sender once the write ends instead of
+            // waiting for the client here.
+            if (!this.sending.get()) {
+                this.complete();
+            }
+        }
+
+        private void complete() {
+            if (this.completed.compareAndSet(false, true)) {
+                this.emitter.complete();
+            }
+        }
+    }
+}
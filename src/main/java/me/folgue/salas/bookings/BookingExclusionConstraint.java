@@ -0,0 +1,83 @@
+package me.folgue.salas.bookings;
+
+import jakarta.annotation.PostConstruct;
+import java.sql.SQLException;
+import lombok.extern.java.Log;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds a PostgreSQL exclusion constraint to the booking table that rejects
+ * bookings of the same room with overlapping dates (<i>inclusive, as in
+ * {@link BookingUtils#isDateRangeInRange}</i>), so the insert itself becomes
+ * the conflict check and concurrent bookings of the same room can't both
+ * succeed.
+ * <br>
+ * <b>NOTE</b>: This only works with PostgreSQL (<i>it requires the
+ * {@code btree_gist} extension</i>) and has to be enabled explicitly with
+ * {@code salas.bookings.exclusion-constraint.enabled=true}. The constraint
+ * can't be created if there are already overlapping bookings in the table.
+ * It's created when the application starts instead of by a migration, as it
+ * depends on the property, and it isn't removed when disabled.
+ *
+ * @see BookingService#saveIfAvailable
+ * @author folgue
+ */
+@Component
+@ConditionalOnProperty(name = "salas.bookings.exclusion-constraint.enabled", havingValue = "true")
+@DependsOn("entityManagerFactory")
+@Log
+public class BookingExclusionConstraint {
+
+    public static final String CONSTRAINT_NAME = "booking_no_overlap";
+
+    /**
+     * SQL state used by PostgreSQL for exclusion constraint violations.
+     */
+    private static final String EXCLUSION_VIOLATION = "23P01";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookingExclusionConstraint(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Creates the constraint if it doesn't exist yet.
+     */
+    @PostConstruct
+    public void createConstraint() {
+        this.jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS btree_gist");
+        this.jdbcTemplate.execute(String.format("""
+                DO $$
+                BEGIN
+                    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = '%1$s') THEN
+                        ALTER TABLE booking ADD CONSTRAINT %1$s
+                        EXCLUDE USING gist (room_id WITH =, tsrange(start_date, end_date, '[]') WITH &&);
+                    END IF;
+                END
+                $$
+                """, CONSTRAINT_NAME));
+        log.info(String.format("Exclusion constraint '%s' enabled for the booking table.", CONSTRAINT_NAME));
+    }
+
+    /**
+     * Checks if the given exception was caused by a violation of the
+     * exclusion constraint.
+     *
+     * @param e Exception thrown when saving a booking.
+     * @return {@code true} if the exception was caused by a booking that
+     * overlaps with another one of the same room, {@code false} otherwise.
+     */
+    public static boolean isViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && EXCLUSION_VIOLATION.equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,37 @@
+package me.folgue.salas.bookings;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lightweight view of a {@link Booking}, containing only the information
+ * needed to detect conflicts between bookings of the same room.
+ *
+ * @param bookingId Id of the booking.
+ * @param roomId Id of the room booked.
+ * @param startDate Start of the booking.
+ * @param endDate End of the booking.
+ * @author folgue
+ */
+public record BookingInterval(Long bookingId, Long roomId, LocalDateTime startDate, LocalDateTime endDate) {
+
+    /**
+     * Creates the interval of the given booking.
+     *
+     * @param booking Booking to take the information from.
+     * @return The interval of the booking.
+     */
+    public static BookingInterval of(Booking booking) {
+        return new BookingInterval(booking.getId(), booking.getRoom().getId(), booking.getStartDate(), booking.getEndDate());
+    }
+
+    /**
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @see BookingUtils#isDateRangeInRange
+     * @return {@code true} if this interval has a conflict with the given range
+     * of time, {@code false} otherwise.
+     */
+    public boolean overlaps(LocalDateTime startDate, LocalDateTime endDate) {
+        return BookingUtils.isDateRangeInRange(startDate, endDate, this.startDate, this.endDate);
+    }
+}
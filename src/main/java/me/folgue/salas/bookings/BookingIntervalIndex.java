@@ -0,0 +1,295 @@
+package me.folgue.salas.bookings;
+
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import lombok.extern.java.Log;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory index of the bookings of every room, used to answer whether a
+ * range of time has a conflict with the bookings of a room without loading
+ * them from the database.
+ * <br>
+ * The bookings of each room are kept in an interval tree: a binary search
+ * tree sorted by their start date, balanced as a treap (<i>by a random
+ * priority per node</i>), where each node also holds the latest end date of
+ * its subtree. A lookup skips the subtrees that end before the range of time
+ * and the ones that start after it, so it takes {@code O((k + 1) log n)}
+ * time (<i>expected</i>), {@code n} being the number of bookings of the room
+ * and {@code k} the number of bookings with a conflict, however long the
+ * bookings are.
+ * <br>
+ * <b>NOTE</b>: The index is built from the database when the application
+ * starts, and kept up to date by {@link BookingService}, changes made to the
+ * database by other means (<i>such as other instances of the API</i>) won't
+ * be reflected on it, that's why it has to be enabled explicitly with
+ * {@code salas.bookings.interval-index.enabled=true}, otherwise the conflicts
+ * are looked up in the database.
+ *
+ * @see BookingInterval
+ * @author folgue
+ */
+@Component
+@ConditionalOnProperty(name = "salas.bookings.interval-index.enabled", havingValue = "true")
+@Log
+public class BookingIntervalIndex {
+
+    private final BookingRepository bookingRepository;
+    private final Map<Long, RoomIntervals> rooms = new ConcurrentHashMap<>();
+    private final Map<Long, BookingInterval> bookings = new ConcurrentHashMap<>();
+
+    public BookingIntervalIndex(BookingRepository bookingRepository) {
+        this.bookingRepository = bookingRepository;
+    }
+
+    /**
+     * Creates an index that only contains the given intervals, which isn't
+     * backed by the database (<i>it can't be rebuilt</i>).
+     *
+     * @param intervals Intervals to index.
+     * @return The index.
+     */
+    public static BookingIntervalIndex of(Collection<BookingInterval> intervals) {
+        BookingIntervalIndex index = new BookingIntervalIndex(null);
+        intervals.forEach(index::put);
+        return index;
+    }
+
+    /**
+     * Discards the contents of the index and loads the intervals of all the
+     * bookings stored in the database.
+     */
+    @PostConstruct
+    public synchronized void rebuild() {
+        this.rooms.clear();
+        this.bookings.clear();
+        List<BookingInterval> intervals = this.bookingRepository.findAllIntervals();
+        intervals.forEach(this::put);
+        log.info(String.format("Booking interval index built with %d bookings for %d rooms.", intervals.size(), this.rooms.size()));
+    }
+
+    /**
+     * Adds the interval to the index, replacing the previous interval of the
+     * same booking (<i>if any</i>).
+     *
+     * @param interval Interval of the booking to index.
+     */
+    public void put(BookingInterval interval) {
+        BookingInterval previous = this.bookings.put(interval.bookingId(), interval);
+        if (previous != null) {
+            this.roomIntervals(previous.roomId()).remove(previous);
+        }
+        this.roomIntervals(interval.roomId()).add(interval);
+    }
+
+    /**
+     * Removes the booking with the given id from the index, if it isn't
+     * indexed this function won't do anything.
+     *
+     * @param bookingId Id of the booking to remove.
+     */
+    public void remove(long bookingId) {
+        BookingInterval previous = this.bookings.remove(bookingId);
+        if (previous != null) {
+            this.roomIntervals(previous.roomId()).remove(previous);
+        }
+    }
+
+    /**
+     * Removes all the bookings of the given room from the index.
+     * <br>
+     * The bookings are removed along with the tree of the room, which isn't
+     * changed afterwards, but {@link BookingService} still has to lock the
+     * room meanwhile (<i>see {@link BookingService#lockRoom}</i>), as a
+     * booking of the room indexed at the same time would be left in a new
+     * tree.
+     *
+     * @param roomId Id of the room.
+     */
+    public void removeRoom(long roomId) {
+        RoomIntervals removed = this.rooms.remove(roomId);
+        if (removed != null) {
+            removed.forEach(interval -> this.bookings.remove(interval.bookingId(), interval));
+        }
+    }
+
+    /**
+     * Returns the intervals of the bookings of the given room that have a
+     * conflict with the range of time specified.
+     *
+     * @param roomId Id of the room.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @see BookingUtils#isDateRangeInRange
+     * @return The intervals that have a conflict, sorted by their start date.
+     */
+    public List<BookingInterval> findOverlapping(long roomId, LocalDateTime startDate, LocalDateTime endDate) {
+        RoomIntervals intervals = this.rooms.get(roomId);
+        if (intervals == null) {
+            return List.of();
+        }
+        return intervals.findOverlapping(startDate, endDate);
+    }
+
+    /**
+     * @return The number of bookings indexed.
+     */
+    public int size() {
+        return this.bookings.size();
+    }
+
+    private RoomIntervals roomIntervals(long roomId) {
+        return this.rooms.computeIfAbsent(roomId, id -> new RoomIntervals());
+    }
+
+    /**
+     * Intervals of a single room, in a treap sorted by their start date
+     * (<i>and id, to allow bookings starting at the same time</i>) and
+     * augmented with the latest end date of each subtree.
+     */
+    private static class RoomIntervals {
+
+        private static final Comparator<BookingInterval> ORDER = Comparator
+                .comparing(BookingInterval::startDate)
+                .thenComparing(BookingInterval::bookingId);
+
+        private Node root;
+
+        synchronized void add(BookingInterval interval) {
+            Node[] lower = split(this.root, interval, false);
+            Node[] upper = split(lower[1], interval, true);
+            this.root = merge(merge(lower[0], new Node(interval)), upper[1]);
+        }
+
+        synchronized void remove(BookingInterval interval) {
+            Node[] lower = split(this.root, interval, false);
+            Node[] upper = split(lower[1], interval, true);
+            this.root = merge(lower[0], upper[1]);
+        }
+
+        synchronized void forEach(Consumer<BookingInterval> action) {
+            forEach(this.root, action);
+        }
+
+        synchronized List<BookingInterval> findOverlapping(LocalDateTime startDate, LocalDateTime endDate) {
+            List<BookingInterval> result = new ArrayList<>();
+            findOverlapping(this.root, startDate, endDate, result);
+            return result;
+        }
+
+        /**
+         * Adds the intervals of the subtree that have a conflict with the
+         * range of time, in order.
+         */
+        private static void findOverlapping(Node node, LocalDateTime startDate, LocalDateTime endDate, List<BookingInterval> result) {
+            // Nothing in the subtree ends inside or after the range.
+            if (node == null || node.maxEndDate.isBefore(startDate)) {
+                return;
+            }
+
+            findOverlapping(node.left, startDate, endDate, result);
+            // Neither the node nor its right subtree start before the end of the range.
+            if (node.interval.startDate().isAfter(endDate)) {
+                return;
+            }
+            if (node.interval.overlaps(startDate, endDate)) {
+                result.add(node.interval);
+            }
+            findOverlapping(node.right, startDate, endDate, result);
+        }
+
+        private static void forEach(Node node, Consumer<BookingInterval> action) {
+            if (node != null) {
+                forEach(node.left, action);
+                action.accept(node.interval);
+                forEach(node.right, action);
+            }
+        }
+
+        /**
+         * Splits the subtree into the intervals before {@code interval} (<i>or
+         * up to it, if {@code inclusive}</i>) and the rest.
+         *
+         * @return The roots of both parts.
+         */
+        private static Node[] split(Node node, BookingInterval interval, boolean inclusive) {
+            if (node == null) {
+                return new Node[]{null, null};
+            }
+
+            int order = ORDER.compare(node.interval, interval);
+            if (order < 0 || (inclusive && order == 0)) {
+                Node[] parts = split(node.right, interval, inclusive);
+                node.right = parts[0];
+                node.update();
+                return new Node[]{node, parts[1]};
+            }
+
+            Node[] parts = split(node.left, interval, inclusive);
+            node.left = parts[1];
+            node.update();
+            return new Node[]{parts[0], node};
+        }
+
+        /**
+         * Joins two subtrees, all the intervals of {@code left} being before
+         * the ones of {@code right}.
+         *
+         * @return The root of the joined tree.
+         */
+        private static Node merge(Node left, Node right) {
+            if (left == null) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+
+            if (left.priority > right.priority) {
+                left.right = merge(left.right, right);
+                left.update();
+                return left;
+            }
+
+            right.left = merge(left, right.left);
+            right.update();
+            return right;
+        }
+
+        private static class Node {
+
+            private final BookingInterval interval;
+            private final int priority = ThreadLocalRandom.current().nextInt();
+            private Node left;
+            private Node right;
+            /**
+             * Latest end date of the intervals of the subtree.
+             */
+            private LocalDateTime maxEndDate;
+
+            Node(BookingInterval interval) {
+                this.interval = interval;
+                this.maxEndDate = interval.endDate();
+            }
+
+            void update() {
+                this.maxEndDate = this.interval.endDate();
+                if (this.left != null && this.left.maxEndDate.isAfter(this.maxEndDate)) {
+                    this.maxEndDate = this.left.maxEndDate;
+                }
+                if (this.right != null && this.right.maxEndDate.isAfter(this.maxEndDate)) {
+                    this.maxEndDate = this.right.maxEndDate;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package me.folgue.salas.bookings;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Single row holding the duration of the longest booking stored, raised with
+ * {@link BookingRepository#raiseMaxDurationSeconds} in the transaction of
+ * every booking that lasts longer (<i>see {@link BookingDurationBound}</i>).
+ * <br>
+ * The row is inserted by the migrations (<i>and by {@code import.sql} when
+ * the schema is created from the entities</i>).
+ *
+ * @author folgue
+ */
+@Entity
+@Table(name = "booking_max_duration")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class BookingMaxDuration {
+
+    @Id
+    private Integer id;
+
+    /**
+     * Only ever raised, so it may be longer than the longest booking left
+     * (<i>once it's removed or archived</i>), never shorter.
+     */
+    @Column(nullable = false)
+    private long seconds;
+}
@@ -0,0 +1,89 @@
+package me.folgue.salas.bookings;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Metrics of the creation of bookings, exposed through
+ * {@code /actuator/metrics} and {@code /actuator/prometheus}.
+ * <br>
+ * The latency of the queries of the repositories is already recorded by
+ * Spring Data ({@code spring.data.repository.invocations}).
+ *
+ * @author folgue
+ */
+@Component
+public class BookingMetrics {
+
+    private final MeterRegistry registry;
+    private final Timer conflictCheck;
+    private final Counter conflictsRejected;
+    private final Counter invalidDatesRejected;
+    private final Counter creations;
+
+    public BookingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.conflictCheck = Timer.builder("salas.bookings.conflict.check")
+                .description("Time spent looking for bookings with a conflict")
+                .register(registry);
+        this.conflictsRejected = Counter.builder("salas.bookings.rejected")
+                .description("Bookings rejected")
+                .tag("reason", "conflict")
+                .register(registry);
+        this.invalidDatesRejected = Counter.builder("salas.bookings.rejected")
+                .description("Bookings rejected")
+                .tag("reason", "invalid_dates")
+                .register(registry);
+        // Not tagged by room, as there would be a series per room.
+        this.creations = Counter.builder("salas.bookings.creations")
+                .description("Bookings created")
+                .register(registry);
+    }
+
+    /**
+     * Runs a conflict check, recording how long it takes.
+     *
+     * @param <T> Type of the result of the check.
+     * @param check Conflict check to run.
+     * @return The result of the check.
+     */
+    public <T> T timeConflictCheck(Supplier<T> check) {
+        return this.conflictCheck.record(check);
+    }
+
+    /**
+     * Starts timing a conflict check that can't be run by
+     * {@link #timeConflictCheck}, such as an insert checked by
+     * {@link BookingExclusionConstraint}.
+     *
+     * @return The sample to pass to {@link #stopConflictCheck} once the check
+     * ends.
+     */
+    public Timer.Sample startConflictCheck() {
+        return Timer.start(this.registry);
+    }
+
+    /**
+     * Records the time spent since the sample was started as a conflict check.
+     *
+     * @param sample Sample returned by {@link #startConflictCheck}.
+     */
+    public void stopConflictCheck(Timer.Sample sample) {
+        sample.stop(this.conflictCheck);
+    }
+
+    public void conflictRejected() {
+        this.conflictsRejected.increment();
+    }
+
+    public void invalidDatesRejected() {
+        this.invalidDatesRejected.increment();
+    }
+
+    public void bookingCreated() {
+        this.creations.increment();
+    }
+}
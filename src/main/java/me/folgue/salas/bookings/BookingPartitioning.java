@@ -0,0 +1,260 @@
+package me.folgue.salas.bookings;
+
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.extern.java.Log;
+import me.folgue.salas.common.JobLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Turns the booking table into a PostgreSQL table partitioned by
+ * {@code start_date}, with a partition per month ({@code booking_pYYYYMM})
+ * and a default one ({@code booking_default}) for the bookings of the months
+ * without partition.
+ * <br>
+ * The partitions of the next {@code salas.bookings.partitioning.months-ahead}
+ * months are created every day (<i>moving the bookings of the month out of
+ * the default partition</i>), and the ones left empty by
+ * {@link BookingArchiver} are dropped, so the queries filtered by start date
+ * only read the partitions of their range. The overlap queries of
+ * {@link BookingRepository} also filter by start date from below, by the
+ * duration of the longest booking (<i>see {@link BookingDurationBound}</i>).
+ * <br>
+ * When several instances of the API run it, the table is converted and the
+ * partitions are created or dropped by one of them at a time (<i>see
+ * {@link JobLock}</i>), the others wait for it to convert the table and
+ * skip the rest.
+ * <br>
+ * <b>NOTE</b>: This only works with PostgreSQL and has to be enabled
+ * explicitly with {@code salas.bookings.partitioning.enabled=true}. The
+ * table is converted the first time the application starts with it enabled
+ * (<i>instead of by a migration, as it depends on the property</i>),
+ * copying all the bookings, and it stays partitioned when disabled. It can't be used along with
+ * {@link BookingExclusionConstraint}, as exclusion constraints can't span
+ * partitions.
+ *
+ * @author folgue
+ */
+@Component
+@ConditionalOnProperty(name = "salas.bookings.partitioning.enabled", havingValue = "true")
+@DependsOn("entityManagerFactory")
+@Log
+public class BookingPartitioning {
+
+    public static final String DEFAULT_PARTITION = "booking_default";
+    /**
+     * Name of the job, used to lock it (<i>see {@link JobLock}</i>).
+     */
+    public static final String JOB = "booking-partitioning";
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern PARTITION_PATTERN = Pattern.compile("booking_p(\\d{6})");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JobLock jobLock;
+    private final int monthsAhead;
+
+    public BookingPartitioning(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            JobLock jobLock,
+            @Value("${salas.bookings.partitioning.months-ahead:3}") int monthsAhead,
+            @Value("${salas.bookings.exclusion-constraint.enabled:false}") boolean exclusionConstraintEnabled
+    ) {
+        if (exclusionConstraintEnabled) {
+            throw new IllegalStateException("The booking table can't be partitioned while salas.bookings.exclusion-constraint.enabled is true");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobLock = jobLock;
+        this.monthsAhead = monthsAhead;
+    }
+
+    /**
+     * Partitions the booking table if it isn't partitioned yet, and creates
+     * the partitions of the next months.
+     * <br>
+     * It waits for any other instance that is partitioning the table, so
+     * the table is only converted once.
+     */
+    @PostConstruct
+    public void partition() {
+        this.transactionTemplate.executeWithoutResult(status -> {
+            this.jobLock.lock(JOB);
+            if (!this.isPartitioned()) {
+                this.convert();
+                log.info("The booking table has been partitioned by month.");
+            }
+        });
+        this.createUpcomingPartitions();
+    }
+
+    /**
+     * Creates the partitions from the current month to
+     * {@code salas.bookings.partitioning.months-ahead} months from now that
+     * don't exist yet.
+     *
+     * @return The number of partitions created, {@code 0} if a different
+     * instance is creating them.
+     */
+    @Scheduled(cron = "${salas.bookings.partitioning.cron:0 0 0 * * *}")
+    public int createUpcomingPartitions() {
+        return this.transactionTemplate.execute(status -> {
+            if (!this.jobLock.tryLock(JOB)) {
+                return 0;
+            }
+            List<YearMonth> existing = this.listPartitions();
+            YearMonth current = YearMonth.now();
+            int created = 0;
+
+            for (YearMonth month = current; !month.isAfter(current.plusMonths(this.monthsAhead)); month = month.plusMonths(1)) {
+                if (!existing.contains(month)) {
+                    this.createPartition(month);
+                    created++;
+                }
+            }
+            return created;
+        });
+    }
+
+    /**
+     * Drops the empty partitions of the months that ended before
+     * {@code cutoff}, once their bookings have been archived.
+     *
+     * @param cutoff Date the months have to end before.
+     * @return The number of partitions dropped, {@code 0} if a different
+     * instance is partitioning the table.
+     */
+    public int dropPartitionsBefore(LocalDateTime cutoff) {
+        return this.transactionTemplate.execute(status -> {
+            if (!this.jobLock.tryLock(JOB)) {
+                return 0;
+            }
+            int dropped = 0;
+            for (YearMonth month : this.listPartitions()) {
+                if (month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) {
+                    continue;
+                }
+                String partition = partitionName(month);
+                Boolean empty = this.jdbcTemplate.queryForObject(
+                        String.format("SELECT NOT EXISTS (SELECT 1 FROM %s)", partition), Boolean.class);
+                if (Boolean.TRUE.equals(empty)) {
+                    this.jdbcTemplate.execute(String.format("DROP TABLE %s", partition));
+                    dropped++;
+                }
+            }
+            return dropped;
+        });
+    }
+
+    private boolean isPartitioned() {
+        Boolean partitioned = this.jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('booking'))", Boolean.class);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    /**
+     * Replaces the booking table with a partitioned one in the current
+     * transaction, creating the partitions of the months that have bookings
+     * before copying them, so each booking is only copied once.
+     * <br>
+     * The primary key has to include the partition key, so it becomes
+     * {@code (id, start_date)}, the ids are still unique as they come from
+     * {@code booking_seq}.
+     */
+    private void convert() {
+        this.jdbcTemplate.execute(String.format("""
+                DO $$
+                DECLARE
+                    month timestamp;
+                    fk record;
+                BEGIN
+                    ALTER TABLE booking RENAME TO booking_unpartitioned;
+                    CREATE TABLE booking (LIKE booking_unpartitioned INCLUDING DEFAULTS) PARTITION BY RANGE (start_date);
+                    CREATE TABLE %1$s PARTITION OF booking DEFAULT;
+                    FOR month IN
+                        SELECT generate_series(date_trunc('month', MIN(start_date)), date_trunc('month', MAX(start_date)), interval '1 month')
+                        FROM booking_unpartitioned
+                    LOOP
+                        EXECUTE format('CREATE TABLE %%I PARTITION OF booking FOR VALUES FROM (%%L) TO (%%L)',
+                                'booking_p' || to_char(month, 'YYYYMM'), month, month + interval '1 month');
+                    END LOOP;
+                    INSERT INTO booking SELECT * FROM booking_unpartitioned;
+                    -- Keeps the names of the foreign keys.
+                    FOR fk IN
+                        SELECT conname, pg_get_constraintdef(oid) AS definition FROM pg_constraint
+                        WHERE conrelid = 'booking_unpartitioned'::regclass AND contype = 'f'
+                    LOOP
+                        EXECUTE format('ALTER TABLE booking ADD CONSTRAINT %%I %%s', fk.conname, fk.definition);
+                    END LOOP;
+                    DROP TABLE booking_unpartitioned;
+
+                    ALTER TABLE booking ADD PRIMARY KEY (id, start_date);
+                    CREATE INDEX idx_booking_room_dates ON booking (room_id, start_date, end_date);
+                    CREATE INDEX idx_booking_start_date ON booking (start_date, id);
+                    CREATE INDEX idx_booking_organizer_start_date ON booking (organizer, start_date, id);
+                END
+                $$
+                """, DEFAULT_PARTITION));
+    }
+
+    /**
+     * Creates the partition of the month in the current transaction, moving the
+     * bookings of the month out of the default partition first, as
+     * PostgreSQL doesn't allow adding a partition whose rows are in the
+     * default one.
+     */
+    private void createPartition(YearMonth month) {
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        this.jdbcTemplate.execute(String.format("""
+                DO $$
+                BEGIN
+                    CREATE TABLE %1$s (LIKE booking INCLUDING DEFAULTS);
+                    WITH moved AS (
+                        DELETE FROM %2$s
+                        WHERE start_date >= '%3$s' AND start_date < '%4$s'
+                        RETURNING *
+                    )
+                    INSERT INTO %1$s SELECT * FROM moved;
+                    ALTER TABLE booking ATTACH PARTITION %1$s FOR VALUES FROM ('%3$s') TO ('%4$s');
+                END
+                $$
+                """, partitionName(month), DEFAULT_PARTITION, from, to));
+        log.info(() -> String.format("Partition %s of the booking table created.", partitionName(month)));
+    }
+
+    /**
+     * @return The months with a partition, sorted.
+     */
+    private List<YearMonth> listPartitions() {
+        return this.jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'booking'::regclass
+                """, String.class).stream()
+                .map(PARTITION_PATTERN::matcher)
+                .filter(Matcher::matches)
+                .map(matcher -> YearMonth.parse(matcher.group(1), PARTITION_SUFFIX))
+                .sorted()
+                .toList();
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "booking_p" + month.format(PARTITION_SUFFIX);
+    }
+}
@@ -1,11 +1,20 @@
 package me.folgue.salas.bookings;
 
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  *
@@ -17,9 +26,378 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     @Override
     public Optional<Booking> findById(Long id);
 
+    /**
+     * @param id Id of the booking.
+     * @return The id of the room of the booking stored in the database, or
+     * nothing if the booking doesn't exist.
+     */
+    @Query("""
+           SELECT b.room.id FROM Booking b
+           WHERE b.id = :id
+           """)
+    public Optional<Long> findRoomIdById(@Param("id") Long id);
+
+    /**
+     * @param id Id of the booking.
+     * @return The compact view of the booking, or nothing if it doesn't
+     * exist.
+     */
+    @Query("""
+           SELECT new me.folgue.salas.bookings.BookingSummary(b.id, b.organizer, b.startDate, b.endDate, b.room.id)
+           FROM Booking b
+           WHERE b.id = :id
+           """)
+    public Optional<BookingSummary> findSummaryById(@Param("id") Long id);
+
     @Query("""
            SELECT b FROM Booking b
            WHERE b.room.id = :roomId
            """)
     public List<Booking> findByRoomId(@Param("roomId") Long roomId);
+
+    /**
+     * @return The compact view of all the bookings, selected without joining
+     * the rooms.
+     */
+    @Query("""
+           SELECT new me.folgue.salas.bookings.BookingSummary(b.id, b.organizer, b.startDate, b.endDate, b.room.id)
+           FROM Booking b
+           """)
+    public List<BookingSummary> findAllSummaries();
+
+    /**
+     * @param roomId Id of the room.
+     * @return The compact view of the bookings of the room.
+     */
+    @Query("""
+           SELECT new me.folgue.salas.bookings.BookingSummary(b.id, b.organizer, b.startDate, b.endDate, b.room.id)
+           FROM Booking b
+           WHERE b.room.id = :roomId
+           """)
+    public List<BookingSummary> findSummariesByRoomId(@Param("roomId") Long roomId);
+
+    /**
+     * Returns the bookings of a room that have a conflict with the given range
+     * of time (<i>inclusive, as in
+     * {@link BookingUtils#isDateRangeInRange}</i>).
+     * <br>
+     * As no booking lasts longer than the longest one stored, the overlap
+     * queries also bound the start of the bookings from below (<i>see
+     * {@link BookingDurationBound}</i>), which is redundant but lets
+     * PostgreSQL skip the partitions of the months before it (<i>see
+     * {@link BookingPartitioning}</i>) and read less of the
+     * {@code (room_id, start_date, end_date)} index.
+     *
+     * @param roomId Id of the room.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @return The bookings in the range, sorted by their start date.
+     */
+    @Query("""
+           SELECT b FROM Booking b
+           WHERE b.room.id = :roomId
+           AND b.startDate <= :endDate
+           AND b.startDate >= :#{@bookingDurationBound.earliestStartOf(#startDate)}
+           AND b.endDate >= :startDate
+           ORDER BY b.startDate
+           """)
+    public List<Booking> findOverlapping(
+            @Param("roomId") Long roomId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * Checks if the room has any booking that has a conflict with the given
+     * range of time, stopping at the first one found (<i>backed by the
+     * {@code idx_booking_room_dates} index</i>).
+     *
+     * @param roomId Id of the room.
+     * @param earliestStartDate Earliest start of a booking with a conflict
+     * (<i>see {@link BookingDurationBound#earliestStartOf}</i>).
+     * @param endDate End of the range of time.
+     * @param startDate Start of the range of time.
+     * @return {@code true} if there is at least one booking with a conflict.
+     */
+    public boolean existsByRoomIdAndStartDateBetweenAndEndDateGreaterThanEqual(Long roomId, LocalDateTime earliestStartDate, LocalDateTime endDate, LocalDateTime startDate);
+
+    /**
+     * Same as {@link #findOverlapping(Long, LocalDateTime, LocalDateTime)}, but
+     * ignoring the booking with the id {@code excludedBookingId} (<i>if not
+     * null</i>) and returning at most {@code limit} bookings, so the database
+     * can stop at the first match when only its existence matters.
+     *
+     * @param roomId Id of the room.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @param excludedBookingId Id of the booking to ignore, or {@code null}.
+     * @param limit Maximum number of bookings to return.
+     * @return The bookings in the range, sorted by their start date.
+     */
+    @Query("""
+           SELECT b FROM Booking b
+           WHERE b.room.id = :roomId
+           AND b.startDate <= :endDate
+           AND b.startDate >= :#{@bookingDurationBound.earliestStartOf(#startDate)}
+           AND b.endDate >= :startDate
+           AND (:excludedBookingId IS NULL OR b.id <> :excludedBookingId)
+           ORDER BY b.startDate
+           """)
+    public List<Booking> findConflicts(
+            @Param("roomId") Long roomId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("excludedBookingId") Long excludedBookingId,
+            Limit limit
+    );
+
+    /**
+     * Returns the bookings with an id greater than {@code id}, sorted by their
+     * id.
+     *
+     * @param id Id of the last booking of the previous page.
+     * @param limit Maximum number of bookings to return.
+     * @return The bookings of the page.
+     */
+    public List<Booking> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * @param limit Maximum number of bookings to return.
+     * @return The first bookings, sorted by their start date and id.
+     */
+    public List<Booking> findAllByOrderByStartDateAscIdAsc(Limit limit);
+
+    /**
+     * Returns the bookings placed after the given one in the list of bookings
+     * sorted by their start date and id.
+     *
+     * @param startDate Start of the last booking of the previous page.
+     * @param id Id of the last booking of the previous page.
+     * @param limit Maximum number of bookings to return.
+     * @return The bookings of the page.
+     */
+    @Query("""
+           SELECT b FROM Booking b
+           WHERE b.startDate > :startDate
+           OR (b.startDate = :startDate AND b.id > :id)
+           ORDER BY b.startDate, b.id
+           """)
+    public List<Booking> findByStartDateAfter(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("id") Long id,
+            Limit limit
+    );
+
+    /**
+     * Returns the first page of the bookings of the organizer that start
+     * within the range of time, sorted by their start date and id.
+     *
+     * @param organizer Organizer of the bookings.
+     * @param startDate Earliest start of the bookings.
+     * @param endDate Latest start of the bookings.
+     * @param limit Maximum number of bookings to return.
+     * @return The bookings of the page.
+     */
+    @Query("""
+           SELECT b FROM Booking b
+           WHERE b.organizer = :organizer
+           AND b.startDate >= :startDate
+           AND b.startDate <= :endDate
+           ORDER BY b.startDate, b.id
+           """)
+    public List<Booking> findByOrganizer(
+            @Param("organizer") String organizer,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            Limit limit
+    );
+
+    /**
+     * Returns the bookings of the organizer that start within the range of
+     * time placed after the given one, sorted by their start date and id.
+     *
+     * @param organizer Organizer of the bookings.
+     * @param startDate Earliest start of the bookings.
+     * @param endDate Latest start of the bookings.
+     * @param afterStartDate Start of the last booking of the previous page.
+     * @param afterId Id of the last booking of the previous page.
+     * @param limit Maximum number of bookings to return.
+     * @return The bookings of the page.
+     */
+    @Query("""
+           SELECT b FROM Booking b
+           WHERE b.organizer = :organizer
+           AND b.startDate >= :startDate
+           AND b.startDate <= :endDate
+           AND (b.startDate > :afterStartDate OR (b.startDate = :afterStartDate AND b.id > :afterId))
+           ORDER BY b.startDate, b.id
+           """)
+    public List<Booking> findByOrganizerAfter(
+            @Param("organizer") String organizer,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("afterStartDate") LocalDateTime afterStartDate,
+            @Param("afterId") Long afterId,
+            Limit limit
+    );
+
+    @Query("""
+           SELECT new me.folgue.salas.bookings.BookingInterval(b.id, b.room.id, b.startDate, b.endDate)
+           FROM Booking b
+           """)
+    public List<BookingInterval> findAllIntervals();
+
+    /**
+     * Streams the bookings that match the given filters, sorted by their id.
+     * The rows are fetched from the database in chunks as the stream is
+     * consumed, which has to happen inside of a transaction.
+     * <br>
+     * Each filter is written as {@code :param IS NULL OR column ...}, so
+     * once the parameters are bound the database drops the filters not given
+     * and uses the {@code (room_id, start_date, end_date)} index for the rest.
+     *
+     * @param roomId Id of the room of the bookings, or {@code null} for all the
+     * rooms.
+     * @param startDate Start of the range of time the bookings have to have a
+     * conflict with, or {@code null}.
+     * @param endDate End of the range of time the bookings have to have a
+     * conflict with, or {@code null}.
+     * @return A stream of the bookings, which has to be closed.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+           SELECT b FROM Booking b
+           JOIN FETCH b.room
+           WHERE (:roomId IS NULL OR b.room.id = :roomId)
+           AND (:startDate IS NULL OR (b.endDate >= :startDate AND b.startDate >= :#{@bookingDurationBound.earliestStartOf(#startDate)}))
+           AND (:endDate IS NULL OR b.startDate <= :endDate)
+           ORDER BY b.id
+           """)
+    public Stream<Booking> streamAll(
+            @Param("roomId") Long roomId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * Removes all the bookings of the given room with a single statement,
+     * without loading them.
+     *
+     * @param roomId Id of the room.
+     * @return The number of bookings removed.
+     */
+    @Modifying
+    @Query("""
+           DELETE FROM Booking b
+           WHERE b.room.id = :roomId
+           """)
+    public int deleteByRoomId(@Param("roomId") Long roomId);
+
+    /**
+     * Returns the intervals of the bookings that ended before
+     * {@code cutoff}, sorted by their id.
+     * <br>
+     * Bookings start before they end, so filtering by their start date too
+     * lets the database use the {@code (start_date, id)} index (<i>and skip
+     * the partitions after {@code cutoff}, see
+     * {@link BookingPartitioning}</i>).
+     *
+     * @param cutoff Date the bookings have to end before.
+     * @param limit Maximum number of intervals to return.
+     * @return The intervals of the bookings.
+     */
+    @Query("""
+           SELECT new me.folgue.salas.bookings.BookingInterval(b.id, b.room.id, b.startDate, b.endDate)
+           FROM Booking b
+           WHERE b.startDate < :cutoff
+           AND b.endDate < :cutoff
+           ORDER BY b.id
+           """)
+    public List<BookingInterval> findIntervalsEndedBefore(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    /**
+     * Removes the bookings with the given ids with a single statement,
+     * without loading them.
+     *
+     * @param ids Ids of the bookings.
+     * @return The number of bookings removed.
+     */
+    @Modifying
+    @Query("""
+           DELETE FROM Booking b
+           WHERE b.id IN :ids
+           """)
+    public int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Returns the intervals of the bookings of any of the given rooms that
+     * have a conflict with the range of time specified.
+     *
+     * @param roomIds Ids of the rooms.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @return The intervals of the bookings in the range.
+     */
+    @Query("""
+           SELECT new me.folgue.salas.bookings.BookingInterval(b.id, b.room.id, b.startDate, b.endDate)
+           FROM Booking b
+           WHERE b.room.id IN :roomIds
+           AND b.startDate <= :endDate
+           AND b.startDate >= :#{@bookingDurationBound.earliestStartOf(#startDate)}
+           AND b.endDate >= :startDate
+           """)
+    public List<BookingInterval> findIntervalsOverlapping(
+            @Param("roomIds") Collection<Long> roomIds,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * Returns the intervals of the bookings of every room that have a conflict
+     * with the range of time specified.
+     *
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @return The intervals of the bookings in the range.
+     */
+    @Query("""
+           SELECT new me.folgue.salas.bookings.BookingInterval(b.id, b.room.id, b.startDate, b.endDate)
+           FROM Booking b
+           WHERE b.startDate <= :endDate
+           AND b.startDate >= :#{@bookingDurationBound.earliestStartOf(#startDate)}
+           AND b.endDate >= :startDate
+           """)
+    public List<BookingInterval> findAllIntervalsOverlapping(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * @return The duration in seconds of the longest booking stored (<i>see
+     * {@link BookingDurationBound}</i>).
+     */
+    @Query("""
+           SELECT m.seconds FROM BookingMaxDuration m
+           """)
+    public long findMaxDurationSeconds();
+
+    /**
+     * Raises the duration of the longest booking stored, in the transaction
+     * of the booking, if {@code seconds} is longer.
+     *
+     * @param seconds Duration in seconds of the booking.
+     * @return The number of rows updated, {@code 0} if the duration stored is
+     * already as long.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+           UPDATE BookingMaxDuration m
+           SET m.seconds = :seconds
+           WHERE m.seconds < :seconds
+           """)
+    public int raiseMaxDurationSeconds(@Param("seconds") long seconds);
 }
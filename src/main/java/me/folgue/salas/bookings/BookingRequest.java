@@ -0,0 +1,22 @@
+package me.folgue.salas.bookings;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.time.LocalDateTime;
+
+/**
+ * Information of a booking to be created, as received in the body of a
+ * request.
+ *
+ * @param organizer Organizer of the booking.
+ * @param startDate Start of the booking.
+ * @param endDate End of the booking.
+ * @param roomId Id of the room to book.
+ * @author folgue
+ */
+public record BookingRequest(
+        String organizer,
+        @JsonFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime startDate,
+        @JsonFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime endDate,
+        Long roomId) {
+
+}
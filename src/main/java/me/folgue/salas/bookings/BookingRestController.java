@@ -1,52 +1,231 @@
 package me.folgue.salas.bookings;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 import lombok.extern.java.Log;
+import me.folgue.salas.bookings.exceptions.BookingBatchConflictException;
+import me.folgue.salas.bookings.exceptions.BookingBatchTooLargeException;
 import me.folgue.salas.bookings.exceptions.BookingConflictException;
 import me.folgue.salas.bookings.exceptions.BookingInvalidDatesException;
 import me.folgue.salas.bookings.exceptions.BookingControllerException;
 import me.folgue.salas.bookings.exceptions.BookingDoesntExistException;
-import me.folgue.salas.rooms.RoomService;
+import me.folgue.salas.bookings.exceptions.BookingInvalidPageRequestException;
+import me.folgue.salas.bookings.exceptions.RecurringBookingDoesntExistException;
+import me.folgue.salas.bookings.exceptions.RecurringBookingInvalidRuleException;
+import me.folgue.salas.common.KeysetPage;
+import me.folgue.salas.rooms.RoomCalendarVersion;
 import me.folgue.salas.rooms.Room;
 import me.folgue.salas.rooms.exceptions.RoomControllerException;
 import me.folgue.salas.rooms.exceptions.RoomDoesntExistException;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/reservas/")
 @Log
 public class BookingRestController {
 
-    private final RoomService roomService;
     private final BookingService bookingService;
+    private final BookingMetrics bookingMetrics;
+    private final BookingEventBroadcaster eventBroadcaster;
 
-    public BookingRestController(RoomService roomService, BookingService bookingService) {
-        this.roomService = roomService;
+    public BookingRestController(
+            BookingService bookingService,
+            BookingMetrics bookingMetrics,
+            BookingEventBroadcaster eventBroadcaster
+    ) {
         this.bookingService = bookingService;
+        this.bookingMetrics = bookingMetrics;
+        this.eventBroadcaster = eventBroadcaster;
     }
 
     /**
      *
-     * @return A list containing all the bookings stored in the database.
+     * @return A list containing all the bookings stored in the database,
+     * followed by the occurrences of the recurring bookings.
      */
     @GetMapping("/")
     public List<Booking> getAll() {
         return this.bookingService.getAll();
     }
 
+    /**
+     * Compact version of {@link #getAll()}, in which the bookings reference
+     * their room by id.
+     *
+     * @param includeRooms Whether the rooms of the bookings have to be
+     * included, once each, in the response.
+     * @return The bookings, and their rooms if requested.
+     */
+    @GetMapping(path = "/", params = {"view=compact", "!limit"})
+    public BookingSummaryList getAllCompact(@RequestParam(defaultValue = "false") boolean includeRooms) {
+        return this.bookingService.getAllSummaries(includeRooms);
+    }
+
+    /**
+     * Returns a page of the bookings stored in the database, along with the
+     * occurrences of the recurring bookings (<i>after the bookings sorted by
+     * id, or merged with them when sorted by start date</i>), the next page
+     * can be requested passing the {@code nextCursor} of the page as
+     * {@code after}.
+     *
+     * @param limit Maximum number of bookings of the page (<i>up to
+     * {@link KeysetPage#MAX_LIMIT}</i>).
+     * @param after Cursor of the previous page, if not specified, the first
+     * page is returned.
+     * @param orderBy Either {@code id} or {@code startDate}.
+     * @return The page of bookings.
+     * @throws BookingControllerException If the cursor or the order are
+     * invalid.
+     */
+    @GetMapping(path = "/", params = "limit")
+    public KeysetPage<Booking> getPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "id") String orderBy
+    ) throws BookingControllerException {
+        return switch (orderBy) {
+            case "id" ->
+                this.bookingService.getPage(after == null ? null : BookingCursor.parseId(after), limit);
+            case "startDate" ->
+                this.bookingService.getPageByStartDate(after == null ? null : BookingCursor.parse(after), limit);
+            default ->
+                throw new BookingInvalidPageRequestException(String.format("No se pueden ordenar las reservas por '%s'", orderBy));
+        };
+    }
+
+    /**
+     * Returns a page of the bookings of the organizer, along with the
+     * occurrences of their recurring bookings, sorted by their start date.
+     * The next page can be requested passing the {@code nextCursor} of the
+     * page as {@code after}.
+     *
+     * @param organizer Organizer of the bookings.
+     * @param upcoming If {@code true}, only the bookings that start from now
+     * on are returned.
+     * @param startDate Earliest start of the bookings (<i>optional</i>).
+     * @param endDate Latest start of the bookings (<i>optional</i>).
+     * @param limit Maximum number of bookings of the page (<i>up to
+     * {@link KeysetPage#MAX_LIMIT}</i>).
+     * @param after Cursor of the previous page, if not specified, the first
+     * page is returned.
+     * @return The page of bookings.
+     * @throws BookingControllerException If the range of dates or the cursor
+     * are invalid.
+     */
+    @GetMapping("/organizador/{organizer}")
+    public KeysetPage<Booking> getBookingsOfOrganizer(
+            @PathVariable String organizer,
+            @RequestParam(defaultValue = "false") boolean upcoming,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime endDate,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String after
+    ) throws BookingControllerException {
+        if (startDate != null && endDate != null && !BookingUtils.isValidDateRange(startDate, endDate)) {
+            throw new BookingInvalidDatesException(startDate, endDate);
+        }
+        return this.bookingService.getOrganizerPage(organizer, startDate, endDate, upcoming, after == null ? null : BookingCursor.parse(after), limit);
+    }
+
+    /**
+     * Returns a page of the bookings archived by {@link BookingArchiver} that
+     * have a conflict with the range of time, sorted by their start date. The
+     * next page can be requested passing the {@code nextCursor} of the page
+     * as {@code after}.
+     *
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @param roomId Id of the room of the bookings (<i>optional</i>).
+     * @param limit Maximum number of bookings of the page (<i>up to
+     * {@link KeysetPage#MAX_LIMIT}</i>).
+     * @param after Cursor of the previous page, if not specified, the first
+     * page is returned.
+     * @return The page of archived bookings.
+     * @throws BookingControllerException If the range of dates or the cursor
+     * are invalid.
+     */
+    @GetMapping("/historial")
+    public KeysetPage<ArchivedBooking> getHistory(
+            @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime endDate,
+            @RequestParam(required = false) Long roomId,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String after
+    ) throws BookingControllerException {
+        if (!BookingUtils.isValidDateRange(startDate, endDate)) {
+            throw new BookingInvalidDatesException(startDate, endDate);
+        }
+        return this.bookingService.getHistoryPage(roomId, startDate, endDate, after == null ? null : BookingCursor.parse(after), limit);
+    }
+
+    /**
+     * Exports the bookings that match the given filters, one JSON object per
+     * line (<i>NDJSON</i>), writing them to the response as they are read
+     * from the database, followed by the occurrences of the recurring
+     * bookings that match them.
+     *
+     * @param roomId Id of the room of the bookings (<i>optional</i>).
+     * @param startDate Start of the range of time the bookings have to have a
+     * conflict with (<i>optional</i>).
+     * @param endDate End of the range of time the bookings have to have a
+     * conflict with (<i>optional</i>).
+     * @return The body of the response, written after returning.
+     */
+    @GetMapping(path = "/exportar", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBookings(
+            @RequestParam(required = false) Long roomId,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime endDate
+    ) {
+        StreamingResponseBody body = output -> {
+            long exported = this.bookingService.export(output, roomId, startDate, endDate);
+            log.info(() -> String.format("Exported %d bookings.", exported));
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Streams the changes made to the bookings as Server-Sent Events (<i>see
+     * {@link BookingChangeEvent}</i>), once they have been committed.
+     *
+     * @param roomId Id of the room whose changes are streamed, if not
+     * specified the changes of every room are streamed.
+     * @param lastEventId Id of the last event received, sent by the clients
+     * when reconnecting so the events missed are sent first.
+     * @return The stream of events.
+     */
+    @GetMapping(path = "/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(
+            @RequestParam(required = false) Long roomId,
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId
+    ) {
+        return this.eventBroadcaster.subscribe(roomId, lastEventId);
+    }
+
     /**
      * Route that can be used to create booking associated with a room.
      *
@@ -67,22 +246,35 @@ public class BookingRestController {
             @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime endDate,
             @RequestParam Long roomId
     ) throws RoomControllerException, BookingControllerException {
-        Room room = this.roomService.findRoomById(roomId).orElseThrow(() -> new RoomDoesntExistException(roomId));
-        Booking booking = new Booking(organizer, startDate, endDate, room);
-
         if (!BookingUtils.isValidDateRange(startDate, endDate)) {
+            this.bookingMetrics.invalidDatesRejected();
             throw new BookingInvalidDatesException(startDate, endDate);
         }
 
-        List<Booking> conflictedBookings = this.bookingService.getBookingsForRoomInRange(room.getId(), startDate, endDate);
-
-        if (!conflictedBookings.isEmpty()) {
-            throw new BookingConflictException(startDate, endDate, conflictedBookings.get(0).getStartDate(), conflictedBookings.get(0).getEndDate(), roomId);
-        }
+        // The room is looked up (and locked) by the service.
+        Booking saved = this.bookingService.saveIfAvailable(new Booking(organizer, startDate, endDate, null), roomId);
+        log.info(() -> String.format("New booking (id '%d') for room with id '%d' for organizer '%s' created.", saved.getId(), roomId, organizer));
+        return saved;
+    }
 
-        booking = this.bookingService.save(booking);
-        log.info(String.format("New booking (id '%d') for room with id '%d' for organizer '%s' created.", booking.getId(), roomId, organizer));
-        return booking;
+    /**
+     * Creates many bookings at once, the bookings that are invalid or have a
+     * conflict (<i>with a stored booking or a previous booking of the
+     * batch</i>) are skipped.
+     *
+     * @param requests Bookings to create (<i>up to
+     * {@link BookingService#MAX_BATCH_SIZE}</i>).
+     * @return The result of each booking of the batch, in the same order.
+     * @throws BookingControllerException If the batch is too large, or a
+     * booking created at the same time has a conflict with the batch.
+     */
+    @PostMapping("/lote")
+    public List<BookingBatchResult> createBookings(@RequestBody List<BookingRequest> requests) throws BookingControllerException {
+        List<BookingBatchResult> results = this.bookingService.saveBatch(requests);
+        log.info(() -> String.format("Batch of %d bookings processed, %d created.",
+                results.size(),
+                results.stream().filter(r -> r.status() == BookingBatchResult.Status.CREATED).count()));
+        return results;
     }
 
     /**
@@ -118,43 +310,22 @@ public class BookingRestController {
             @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime endDateOptional,
             @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") Long roomId
     ) throws RoomControllerException, BookingControllerException {
-        Booking booking = this.bookingService.findById(bookingId).orElseThrow(() -> new BookingDoesntExistException(bookingId));
+        Booking booking = this.bookingService.findByIdForWrite(bookingId).orElseThrow(() -> new BookingDoesntExistException(bookingId));
         LocalDateTime startDate = startDateOptional == null ? booking.getStartDate() : startDateOptional;
         LocalDateTime endDate = endDateOptional == null ? booking.getEndDate() : endDateOptional;
 
-        Room room;
-
-        if (roomId != null) {
-            room = this.roomService.findRoomById(roomId).orElseThrow(() -> new RoomDoesntExistException(roomId));
-        } else {
-            room = booking.getRoom();
-        }
-
-        List<Booking> conflictedBookings = this.bookingService.getBookingsForRoomInRange(room.getId(), startDate, endDate)
-                .stream()
-                .filter(b -> !b.getRoom().getId().equals(roomId))
-                .toList();
-
-        if (!conflictedBookings.isEmpty()) {
-            throw new BookingConflictException(
-                    startDate,
-                    endDate,
-                    conflictedBookings.get(0).getStartDate(),
-                    conflictedBookings.get(0).getEndDate(),
-                    room.getId()
-            );
-        }
-
-        booking.setRoom(room);
         if (!BookingUtils.isValidDateRange(startDate, endDate)) {
+            this.bookingMetrics.invalidDatesRejected();
             throw new BookingInvalidDatesException(startDate, endDate);
         }
 
+        // The room is looked up and changed by the service, which needs the
+        // previous one.
         booking.setOrganizer(organizer == null ? booking.getOrganizer() : organizer);
         booking.setStartDate(startDate);
         booking.setEndDate(endDate);
 
-        return booking;
+        return this.bookingService.saveIfAvailable(booking, roomId == null ? booking.getRoom().getId() : roomId);
     }
 
     /**
@@ -166,21 +337,185 @@ public class BookingRestController {
      */
     @DeleteMapping("/{bookingId}")
     public Booking deleteBooking(@PathVariable Long bookingId) throws BookingControllerException {
-        Booking reserva = this.bookingService.findById(bookingId).orElseThrow(() -> new BookingDoesntExistException(bookingId));
+        Booking reserva = this.bookingService.findByIdForWrite(bookingId).orElseThrow(() -> new BookingDoesntExistException(bookingId));
         this.bookingService.delete(reserva.getId());
         return reserva;
     }
 
     /**
+     * @return All the recurring bookings, without expanding their
+     * occurrences.
+     */
+    @GetMapping("/recurrentes")
+    public List<RecurringBooking> getAllRecurring() {
+        return this.bookingService.getAllRecurring();
+    }
+
+    /**
+     * @param recurringBookingId Id of the recurring booking.
+     * @return The recurring booking.
+     * @throws BookingControllerException If there is no recurring booking with
+     * such id.
+     */
+    @GetMapping("/recurrentes/{recurringBookingId}")
+    public RecurringBooking getRecurringById(@PathVariable Long recurringBookingId) throws BookingControllerException {
+        return this.bookingService.findRecurringById(recurringBookingId)
+                .orElseThrow(() -> new RecurringBookingDoesntExistException(recurringBookingId));
+    }
+
+    /**
+     * Creates a booking that repeats every {@code interval} days or weeks,
+     * stored as a single rule whatever its number of occurrences. It ends
+     * either on {@code untilDate} (<i>the last day an occurrence can
+     * start</i>) or after {@code count} occurrences.
+     *
+     * @param organizer Organizer of the bookings.
+     * @param startDate Start of the first occurrence.
+     * @param endDate End of the first occurrence.
+     * @param roomId Id of the room to book.
+     * @param frequency How often the booking repeats.
+     * @param interval Number of days or weeks between occurrences.
+     * @param untilDate Last day an occurrence can start.
+     * @param count Number of occurrences.
+     * @return The recurring booking created.
+     * @throws RoomControllerException If there is no room with such ID.
+     * @throws BookingControllerException If the dates or the repetition are
+     * invalid, or an occurrence has a conflict with a different booking of the
+     * same room.
+     */
+    @PostMapping("/recurrentes")
+    public RecurringBooking createRecurring(
+            @RequestParam String organizer,
+            @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime endDate,
+            @RequestParam Long roomId,
+            @RequestParam RecurrenceFrequency frequency,
+            @RequestParam(defaultValue = "1") int interval,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate untilDate,
+            @RequestParam(required = false) Integer count
+    ) throws RoomControllerException, BookingControllerException {
+        if (!BookingUtils.isValidDateRange(startDate, endDate)) {
+            this.bookingMetrics.invalidDatesRejected();
+            throw new BookingInvalidDatesException(startDate, endDate);
+        }
+        if (interval < 1) {
+            throw new RecurringBookingInvalidRuleException("El intervalo de repeticion tiene que ser de al menos 1");
+        }
+        if (!Duration.between(startDate, endDate).minus(frequency.period(interval)).isNegative()) {
+            throw new RecurringBookingInvalidRuleException("La reserva tiene que acabar antes de que empiece la siguiente repeticion");
+        }
+        if ((untilDate == null) == (count == null)) {
+            throw new RecurringBookingInvalidRuleException("Hay que indicar la fecha de fin (untilDate) o el numero de repeticiones (count), pero no ambos");
+        }
+
+        long occurrences = count != null
+                ? count
+                : RecurringBooking.countOccurrencesUntil(startDate, frequency, interval, untilDate);
+        if (occurrences < 1 || occurrences > RecurringBooking.MAX_OCCURRENCES) {
+            throw new RecurringBookingInvalidRuleException(String.format(
+                    "El numero de repeticiones (%d) tiene que estar entre 1 y %d", occurrences, RecurringBooking.MAX_OCCURRENCES));
+        }
+
+        RecurringBooking saved = this.bookingService.saveRecurringIfAvailable(
+                new RecurringBooking(organizer, startDate, endDate, null, frequency, interval, (int) occurrences), roomId);
+        log.info(() -> String.format("New recurring booking (id '%d', %d occurrences) for room with id '%d' for organizer '%s' created.",
+                saved.getId(), saved.getOccurrences(), roomId, organizer));
+        return saved;
+    }
+
+    /**
+     * Deletes a recurring booking, along with all its occurrences.
+     *
+     * @param recurringBookingId Id of the recurring booking to be removed.
+     * @return The recurring booking removed.
+     * @throws BookingControllerException If there is no recurring booking with
+     * such id.
+     */
+    @DeleteMapping("/recurrentes/{recurringBookingId}")
+    public RecurringBooking deleteRecurring(@PathVariable Long recurringBookingId) throws BookingControllerException {
+        return this.bookingService.deleteRecurring(recurringBookingId)
+                .orElseThrow(() -> new RecurringBookingDoesntExistException(recurringBookingId));
+    }
+
+    /**
+     * If the room exists, the response has an ETag that changes whenever the
+     * room or any of its bookings change, and {@code 304} is returned without
+     * looking up the bookings if the ETag sent in {@code If-None-Match} is
+     * still valid. The ETag is read along with the bookings (<i>see
+     * {@link BookingService#getCalendar}</i>), so it always matches them.
+     *
      * @param roomId Id of the booking to be returned.
-     * @return A list containing all the bookings related to the room specified.
+     * @param request Request, used to check the ETag.
+     * @return A list containing all the bookings related to the room specified,
+     * or nothing if they haven't changed.
      * <b>NOTE</b>: This function doesn't check if the room specified doesn't
      * exist, it just returns bookings related to rooms with that id.
      */
     @GetMapping("/sala/{roomId}")
-    public List<Booking> getBookingByRoomId(@PathVariable Long roomId) {
-        // TODO: Additional?
-        return this.bookingService.getBookingsForRoom(roomId);
+    public List<Booking> getBookingByRoomId(@PathVariable Long roomId, WebRequest request) {
+        return this.bookingService.getCalendar(roomId, isNotModified("full", request), this.bookingService::getBookingsForRoom).bookings();
+    }
+
+    /**
+     * Compact version of {@link #getBookingByRoomId}, in which the bookings
+     * reference the room by id.
+     *
+     * @param roomId Id of the room.
+     * @param includeRooms Whether the room has to be included in the response.
+     * @return The bookings of the room, and the room if requested.
+     */
+    @GetMapping(path = "/sala/{roomId}", params = "view=compact")
+    public BookingSummaryList getBookingByRoomIdCompact(
+            @PathVariable Long roomId,
+            @RequestParam(defaultValue = "false") boolean includeRooms,
+            WebRequest request
+    ) {
+        return this.bookingService.getCalendar(
+                roomId,
+                isNotModified(includeRooms ? "compact-rooms" : "compact", request),
+                id -> this.bookingService.getSummariesForRoom(id, includeRooms)
+        ).bookings();
+    }
+
+    /**
+     * Checks the ETag of a version of the bookings of a room against the
+     * {@code If-None-Match} header of the request.
+     *
+     * @param view Representation of the bookings returned.
+     * @param request Request to check, and whose response gets the ETag.
+     * @return A check that returns {@code true} if the bookings haven't
+     * changed, in which case the response is already a {@code 304}.
+     */
+    private static Predicate<RoomCalendarVersion> isNotModified(String view, WebRequest request) {
+        return version -> request.checkNotModified(version.toETag(view));
+    }
+
+    /**
+     * Returns the ranges of time in which the room is free, inside of the range
+     * of time given.
+     *
+     * @param roomId Id of the room.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @param minDuration Minimum duration (<i>in minutes</i>) of the free
+     * ranges returned.
+     * @return The free ranges of time, sorted by their start date.
+     * <b>NOTE</b>: This function doesn't check if the room specified doesn't
+     * exist, the whole range of time is returned for such rooms.
+     * @throws BookingControllerException If the range of time is invalid.
+     */
+    @GetMapping("/sala/{roomId}/libres")
+    public List<TimeSlot> getFreeSlotsByRoomId(
+            @PathVariable Long roomId,
+            @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime endDate,
+            @RequestParam(defaultValue = "0") long minDuration
+    ) throws BookingControllerException {
+        if (!BookingUtils.isValidDateRange(startDate, endDate)) {
+            throw new BookingInvalidDatesException(startDate, endDate);
+        }
+
+        return this.bookingService.getFreeSlotsForRoom(roomId, startDate, endDate, Duration.ofMinutes(minDuration));
     }
 
     /**
@@ -189,14 +524,12 @@ public class BookingRestController {
      * @param room Room to check.
      * @param startDate Start of the range of time to check.
      * @param endDate End of the range of time to check.
-     * @see getBookingsForRoomInRange
-     * @return {@code true} if the room is booked between {@code startDate} and
-     * {@code endDate}, otherwise, {@code false}
+     * @see BookingService#isRoomAvailable
+     * @return {@code true} if the room isn't booked between {@code startDate}
+     * and {@code endDate}, otherwise, {@code false}
      */
     public boolean isRoomAvailable(Room room, LocalDateTime startDate, LocalDateTime endDate) {
-        return room.getBookings().stream()
-                .noneMatch(b -> (b.getStartDate().isAfter(startDate) && b.getEndDate().isAfter(endDate))
-                || (b.getStartDate().isAfter(endDate) && b.getEndDate().isBefore(endDate)));
+        return this.bookingService.isRoomAvailable(room.getId(), startDate, endDate);
     }
 
     @ExceptionHandler(BookingInvalidDatesException.class)
@@ -205,18 +538,48 @@ public class BookingRestController {
         return e.getMessage();
     }
 
+    @ExceptionHandler(BookingInvalidPageRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidPageRequest(BookingInvalidPageRequestException e) {
+        return e.getMessage();
+    }
+
     @ExceptionHandler(BookingDoesntExistException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public String handleBookingNotFound(BookingDoesntExistException e) {
         return e.getMessage();
     }
 
+    @ExceptionHandler(RecurringBookingDoesntExistException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public String handleRecurringBookingNotFound(RecurringBookingDoesntExistException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(RecurringBookingInvalidRuleException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidRule(RecurringBookingInvalidRuleException e) {
+        return e.getMessage();
+    }
+
     @ExceptionHandler(RoomDoesntExistException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public String handleRoomDoesntExist(RoomDoesntExistException e) {
         return e.getMessage();
     }
 
+    @ExceptionHandler(BookingBatchTooLargeException.class)
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    public String handleBatchTooLarge(BookingBatchTooLargeException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(BookingBatchConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public String handleBatchConflict(BookingBatchConflictException e) {
+        return e.getMessage();
+    }
+
     @ExceptionHandler(BookingConflictException.class)
     @ResponseStatus(HttpStatus.CONFLICT)
     public String handleBookingConflict(BookingConflictException e) {
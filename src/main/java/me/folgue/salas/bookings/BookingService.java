@@ -1,24 +1,402 @@
 package me.folgue.salas.bookings;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import me.folgue.salas.bookings.BookingBatchResult.Status;
+import me.folgue.salas.bookings.exceptions.BookingBatchConflictException;
+import me.folgue.salas.bookings.exceptions.BookingBatchTooLargeException;
+import me.folgue.salas.bookings.exceptions.BookingConflictException;
+import me.folgue.salas.bookings.exceptions.BookingControllerException;
+import me.folgue.salas.bookings.exceptions.BookingInvalidDatesException;
+import me.folgue.salas.common.JobLock;
+import me.folgue.salas.common.KeysetPage;
+import me.folgue.salas.occupancy.OccupancyIndex;
+import me.folgue.salas.rooms.Room;
+import me.folgue.salas.rooms.RoomCalendarVersion;
+import me.folgue.salas.rooms.RoomRepository;
+import me.folgue.salas.rooms.exceptions.RoomDoesntExistException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 public class BookingService {
 
+    /**
+     * Number of bookings exported between each flush of the output and clear
+     * of the persistence context.
+     */
+    private static final int EXPORT_CHUNK_SIZE = 500;
+
+    /**
+     * Maximum number of bookings that can be created in a single batch.
+     */
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Bounds of the start of the bookings of an organizer when the range of
+     * time isn't limited, as the queries are always bounded by the start.
+     */
+    private static final LocalDateTime MIN_START_DATE = LocalDateTime.of(1, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_START_DATE = LocalDateTime.of(9999, 12, 31, 23, 59);
+    /**
+     * Number of locks the rooms are spread over (<i>see
+     * {@link #writeLockingRoom}</i>).
+     */
+    private static final int ROOM_LOCK_STRIPES = 64;
+    private static final Comparator<BookingCursor> CURSOR_ORDER = Comparator.comparing(BookingCursor::startDate)
+            .thenComparingLong(BookingCursor::id);
+
     private final BookingRepository bookingRepository;
+    private final RoomRepository roomRepository;
+    private final RecurringBookingRepository recurringBookingRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
+    /**
+     * Only present if enabled with {@code salas.bookings.interval-index.enabled}.
+     */
+    private final Optional<BookingIntervalIndex> intervalIndex;
 
-    public BookingService(BookingRepository repository) {
+    /**
+     * Only present if enabled with
+     * {@code salas.bookings.exclusion-constraint.enabled}.
+     */
+    private final Optional<BookingExclusionConstraint> exclusionConstraint;
+
+    /**
+     * Only present if enabled with {@code salas.occupancy.enabled}.
+     */
+    private final Optional<OccupancyIndex> occupancyIndex;
+
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final BookingMetrics metrics;
+    private final BookingDurationBound durationBound;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JobLock jobLock;
+    private final PlatformTransactionManager transactionManager;
+    private final Lock[] roomLocks = new Lock[ROOM_LOCK_STRIPES];
+
+    public BookingService(
+            BookingRepository repository,
+            RoomRepository roomRepository,
+            RecurringBookingRepository recurringBookingRepository,
+            ArchivedBookingRepository archivedBookingRepository,
+            Optional<BookingIntervalIndex> intervalIndex,
+            Optional<BookingExclusionConstraint> exclusionConstraint,
+            Optional<OccupancyIndex> occupancyIndex,
+            EntityManager entityManager,
+            ObjectMapper objectMapper,
+            BookingMetrics metrics,
+            BookingDurationBound durationBound,
+            ApplicationEventPublisher eventPublisher,
+            JobLock jobLock,
+            PlatformTransactionManager transactionManager
+    ) {
         this.bookingRepository = repository;
+        this.roomRepository = roomRepository;
+        this.recurringBookingRepository = recurringBookingRepository;
+        this.archivedBookingRepository = archivedBookingRepository;
+        this.intervalIndex = intervalIndex;
+        this.exclusionConstraint = exclusionConstraint;
+        this.occupancyIndex = occupancyIndex;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.durationBound = durationBound;
+        this.eventPublisher = eventPublisher;
+        this.jobLock = jobLock;
+        this.transactionManager = transactionManager;
+        Arrays.setAll(this.roomLocks, i -> new ReentrantLock());
     }
 
     /**
-     * @return A list containing all the bookings in the database.
+     * @return A list containing all the bookings in the database, followed by
+     * the occurrences of the recurring bookings.
      */
+    @Transactional(readOnly = true)
     public List<Booking> getAll() {
-        return this.bookingRepository.findAll();
+        List<Booking> bookings = new ArrayList<>(this.bookingRepository.findAll());
+        this.recurringBookingRepository.findAll().forEach(recurring -> bookings.addAll(recurring.expand()));
+        return bookings;
+    }
+
+    /**
+     * Same as {@link #getAll()}, but in the compact form of the bookings,
+     * which doesn't load their rooms.
+     *
+     * @param includeRooms Whether the rooms of the bookings have to be
+     * included in the list.
+     * @return The compact list of all the bookings in the database.
+     */
+    @Transactional(readOnly = true)
+    public BookingSummaryList getAllSummaries(boolean includeRooms) {
+        return this.summaryList(this.bookingRepository.findAllSummaries(), this.recurringBookingRepository.findAll(), includeRooms);
+    }
+
+    /**
+     * Returns a page of the bookings sorted by their id, followed by the
+     * occurrences of the recurring bookings (<i>as in {@link #getAll()}</i>).
+     * <br>
+     * The occurrences are sorted by their recurring booking and their index,
+     * and identified in the cursor by their negative id (<i>see
+     * {@link RecurringBooking#occurrenceId}</i>), so once the cursor is
+     * negative only the occurrences after it are looked up.
+     *
+     * @param afterId Id of the last booking of the previous page, or
+     * {@code null} to get the first page.
+     * @param limit Maximum number of bookings of the page.
+     * @return The page, whose cursor is the id of its last booking.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Booking> getPage(Long afterId, int limit) {
+        int pageSize = KeysetPage.clampLimit(limit);
+        Map<Booking, Long> ids = new IdentityHashMap<>();
+        List<Booking> rows = new ArrayList<>();
+        if (afterId == null || afterId >= 0) {
+            rows.addAll(this.bookingRepository.findByIdGreaterThanOrderByIdAsc(
+                    afterId == null ? 0L : afterId,
+                    Limit.of(pageSize + 1)
+            ));
+            rows.forEach(b -> ids.put(b, b.getId()));
+        }
+
+        if (rows.size() <= pageSize) {
+            // Position (id * MAX_OCCURRENCES + k) of the last occurrence of the previous page.
+            long lastPosition = afterId == null || afterId >= 0 ? -1 : -afterId - 1;
+            long firstRecurringId = lastPosition < 0 ? 0 : lastPosition / RecurringBooking.MAX_OCCURRENCES;
+            // Every recurring booking has at least one occurrence.
+            for (RecurringBooking recurring : this.recurringBookingRepository.findByIdGreaterThanEqualOrderByIdAsc(firstRecurringId, Limit.of(pageSize + 1))) {
+                int k = lastPosition >= 0 && recurring.getId() == firstRecurringId
+                        ? (int) (lastPosition % RecurringBooking.MAX_OCCURRENCES) + 1
+                        : 0;
+                for (; k < recurring.getOccurrences() && rows.size() <= pageSize; k++) {
+                    Booking occurrence = recurring.occurrence(k);
+                    rows.add(occurrence);
+                    ids.put(occurrence, recurring.occurrenceId(k));
+                }
+            }
+        }
+        return KeysetPage.of(rows, pageSize, b -> ids.get(b).toString());
+    }
+
+    /**
+     * Returns a page of the bookings sorted by their start date, along with
+     * the occurrences of the recurring bookings (<i>see
+     * {@link #mergeOccurrences}</i>).
+     *
+     * @param after Cursor of the last booking of the previous page, or
+     * {@code null} to get the first page.
+     * @param limit Maximum number of bookings of the page.
+     * @see BookingCursor
+     * @return The page, whose cursor is the {@link BookingCursor} of its last
+     * booking.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Booking> getPageByStartDate(BookingCursor after, int limit) {
+        int pageSize = KeysetPage.clampLimit(limit);
+        List<Booking> rows = after == null
+                ? this.bookingRepository.findAllByOrderByStartDateAscIdAsc(Limit.of(pageSize + 1))
+                : this.bookingRepository.findByStartDateAfter(after.startDate(), after.id(), Limit.of(pageSize + 1));
+
+        LocalDateTime from = after == null ? MIN_START_DATE : after.startDate();
+        // With a full page, the occurrences that start after it aren't needed.
+        LocalDateTime to = rows.size() > pageSize ? rows.get(pageSize).getStartDate() : MAX_START_DATE;
+        return this.mergeOccurrences(rows, this.recurringBookingRepository.findAllOverlapping(from, to), from, to, after, pageSize);
+    }
+
+    /**
+     * Returns a page of the bookings of the organizer that start within the
+     * range of time, sorted by their start date, along with the occurrences
+     * of the recurring bookings of the organizer (<i>see
+     * {@link #mergeOccurrences}</i>).
+     *
+     * @param organizer Organizer of the bookings (<i>exact match</i>).
+     * @param startDate Earliest start of the bookings, or {@code null}.
+     * @param endDate Latest start of the bookings, or {@code null}.
+     * @param upcoming If {@code true}, only the bookings that start from now
+     * on are returned.
+     * @param after Cursor of the last booking of the previous page, or
+     * {@code null} to get the first page.
+     * @param limit Maximum number of bookings of the page.
+     * @return The page, whose cursor is the {@link BookingCursor} of its last
+     * booking.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Booking> getOrganizerPage(String organizer, LocalDateTime startDate, LocalDateTime endDate, boolean upcoming, BookingCursor after, int limit) {
+        int pageSize = KeysetPage.clampLimit(limit);
+        LocalDateTime from = startDate == null ? MIN_START_DATE : startDate;
+        LocalDateTime to = endDate == null ? MAX_START_DATE : endDate;
+        if (upcoming && from.isBefore(LocalDateTime.now())) {
+            from = LocalDateTime.now();
+        }
+
+        List<Booking> rows;
+        if (after == null) {
+            rows = this.bookingRepository.findByOrganizer(organizer, from, to, Limit.of(pageSize + 1));
+        } else {
+            // Starting the range at the cursor, the index is only read from it
+            // instead of from the start of the range.
+            if (from.isBefore(after.startDate())) {
+                from = after.startDate();
+            }
+            rows = this.bookingRepository.findByOrganizerAfter(organizer, from, to, after.startDate(), after.id(), Limit.of(pageSize + 1));
+        }
+        return this.mergeOccurrences(rows, this.recurringBookingRepository.findOverlappingOfOrganizer(organizer, from, to), from, to, after, pageSize);
+    }
+
+    /**
+     * Merges the occurrences of the recurring bookings that start within the
+     * range of time with a page of stored bookings sorted by their start date.
+     * As the occurrences aren't stored, they are identified in the cursor by
+     * their negative id (<i>see {@link RecurringBooking#occurrenceId}</i>), so
+     * they are sorted before the stored bookings that start at the same time.
+     *
+     * @param rows Stored bookings after the cursor, at most
+     * {@code pageSize + 1}.
+     * @param recurringBookings Recurring bookings that take place in the range
+     * of time.
+     * @param from Earliest start of the occurrences.
+     * @param to Latest start of the occurrences.
+     * @param after Cursor of the last booking of the previous page, or
+     * {@code null}.
+     * @param pageSize Number of bookings of the page.
+     * @return The page.
+     */
+    private KeysetPage<Booking> mergeOccurrences(List<Booking> rows, List<RecurringBooking> recurringBookings, LocalDateTime from, LocalDateTime to, BookingCursor after, int pageSize) {
+        Map<Booking, BookingCursor> cursors = new IdentityHashMap<>();
+        rows.forEach(b -> cursors.put(b, BookingCursor.of(b)));
+        // Each recurring booking contributes at most a page of occurrences.
+        for (RecurringBooking recurring : recurringBookings) {
+            recurring.occurrencesStartingBetween(from, to)
+                    .filter(k -> after == null || CURSOR_ORDER.compare(new BookingCursor(recurring.occurrenceStart(k), recurring.occurrenceId(k)), after) > 0)
+                    .limit(pageSize + 1)
+                    .forEach(k -> cursors.put(recurring.occurrence(k), new BookingCursor(recurring.occurrenceStart(k), recurring.occurrenceId(k))));
+        }
+        List<Booking> merged = cursors.keySet().stream()
+                .sorted(Comparator.comparing(cursors::get, CURSOR_ORDER))
+                .limit(pageSize + 1)
+                .toList();
+        return KeysetPage.of(merged, pageSize, b -> cursors.get(b).toString());
+    }
+
+    /**
+     * Returns a page of the archived bookings (<i>see {@link BookingArchiver}</i>)
+     * that have a conflict with the range of time, sorted by their start date.
+     *
+     * @param roomId Id of the room of the bookings, or {@code null} for all the
+     * rooms.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @param after Cursor of the last booking of the previous page, or
+     * {@code null} to get the first page.
+     * @param limit Maximum number of bookings of the page.
+     * @return The page, whose cursor is the {@link BookingCursor} of its last
+     * booking.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<ArchivedBooking> getHistoryPage(Long roomId, LocalDateTime startDate, LocalDateTime endDate, BookingCursor after, int limit) {
+        int pageSize = KeysetPage.clampLimit(limit);
+        List<ArchivedBooking> rows = after == null
+                ? this.archivedBookingRepository.findOverlapping(roomId, startDate, endDate, Limit.of(pageSize + 1))
+                : this.archivedBookingRepository.findOverlappingAfter(roomId, startDate, endDate, after.startDate(), after.id(), Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, b -> BookingCursor.of(b).toString());
+    }
+
+    /**
+     * Writes the bookings that match the given filters to {@code output} as
+     * they are read from the database, one JSON object per line
+     * (<i>NDJSON</i>), followed by the occurrences of the recurring bookings
+     * that match them (<i>as in {@link #getAll()}</i>).
+     * <br>
+     * The persistence context is cleared every {@value #EXPORT_CHUNK_SIZE}
+     * bookings, and the recurring bookings are expanded one at a time, so the
+     * memory used doesn't depend on the number of bookings exported.
+     *
+     * @param output Stream to write the bookings to.
+     * @param roomId Id of the room of the bookings, or {@code null} for all the
+     * rooms.
+     * @param startDate Start of the range of time the bookings have to have a
+     * conflict with, or {@code null}.
+     * @param endDate End of the range of time the bookings have to have a
+     * conflict with, or {@code null}.
+     * @return The number of bookings exported.
+     * @throws IOException If the bookings couldn't be written.
+     */
+    @Transactional(readOnly = true)
+    public long export(OutputStream output, Long roomId, LocalDateTime startDate, LocalDateTime endDate) throws IOException {
+        long exported = 0;
+
+        try (Stream<Booking> bookings = this.bookingRepository.streamAll(roomId, startDate, endDate)) {
+            for (Booking booking : (Iterable<Booking>) bookings::iterator) {
+                exported = this.exportBooking(output, booking, exported);
+            }
+        }
+
+        try (Stream<RecurringBooking> recurringBookings = this.recurringBookingRepository.streamAll(roomId, startDate, endDate)) {
+            for (RecurringBooking recurring : (Iterable<RecurringBooking>) recurringBookings::iterator) {
+                List<Booking> occurrences = recurring.expand(
+                        startDate == null ? recurring.getStartDate() : startDate,
+                        endDate == null ? recurring.getLastEndDate() : endDate
+                );
+                for (Booking occurrence : occurrences) {
+                    exported = this.exportBooking(output, occurrence, exported);
+                }
+            }
+        }
+
+        output.flush();
+        return exported;
+    }
+
+    /**
+     * Writes the booking as a line of the export, flushing the output and
+     * clearing the persistence context every {@value #EXPORT_CHUNK_SIZE}
+     * bookings.
+     *
+     * @return The number of bookings exported, including this one.
+     */
+    private long exportBooking(OutputStream output, Booking booking, long exported) throws IOException {
+        output.write(this.objectMapper.writeValueAsBytes(booking));
+        output.write('\n');
+
+        if (++exported % EXPORT_CHUNK_SIZE == 0) {
+            output.flush();
+            this.entityManager.clear();
+        }
+        return exported;
     }
 
     /**
@@ -32,25 +410,487 @@ public class BookingService {
         return this.bookingRepository.findById(bookingId);
     }
 
+    /**
+     * Looks for a booking with the given id, to modify or delete it.
+     * <br>
+     * Unlike {@link #findById(long)}, it's read from the primary (<i>see
+     * {@link me.folgue.salas.datasource.ReplicaRoutingDataSource}</i>), so a
+     * booking created a moment ago is found, and the booking has its current
+     * version.
+     *
+     * @param bookingId Id of the booking to look for.
+     * @return An empty {@link Optional} if no booking was found, or an
+     * {@link Optional} with the booking of the id specified.
+     */
+    @Transactional
+    public Optional<Booking> findByIdForWrite(long bookingId) {
+        return this.bookingRepository.findById(bookingId);
+    }
+
     /**
      * Saves the instance of the booking to the database.
+     * <br>
+     * <b>NOTE</b>: To move a booking to a different room, use
+     * {@link #saveIfAvailable(Booking, Room)} instead of changing its room,
+     * as the room it had is looked up in the database, where a managed
+     * booking may have already been flushed with the new one.
      *
      * @param booking Booking to be saved.
      * @return The booking saved by the repository.
      */
     public Booking save(Booking booking) {
-        return this.bookingRepository.save(booking);
+        Long previousRoomId = booking.getId() == null
+                ? null
+                : this.bookingRepository.findRoomIdById(booking.getId()).orElse(null);
+        return this.save(booking, previousRoomId, null);
+    }
+
+    /**
+     * @param booking Booking to be saved, already in its new room.
+     * @param previousRoomId Room the booking had before (<i>if it's an
+     * update</i>), or {@code null}.
+     * @param lockedRoomId Room locked by {@link #writeLockingRoom}, whose
+     * calendar version it increments, or {@code null}.
+     * @return The booking saved by the repository.
+     */
+    private Booking save(Booking booking, Long previousRoomId, Long lockedRoomId) {
+        boolean created = booking.getId() == null;
+        Booking saved = this.bookingRepository.save(booking);
+        this.afterSave(saved, roomIdsOf(saved.getRoom().getId(), previousRoomId), lockedRoomId, created);
+        return saved;
+    }
+
+    /**
+     * Saves the booking to the database only if it doesn't have a conflict with
+     * a different booking of the same room.
+     * <br>
+     * If the {@link BookingExclusionConstraint} is enabled, the insert itself
+     * is the conflict check (<i>only the recurring bookings are looked up
+     * before saving it</i>), otherwise the conflicts are looked up with
+     * {@link #findConflict} before saving it.
+     * <br>
+     * The lookup and the insert run in a transaction that locks the room
+     * first (<i>see {@link #writeLockingRoom}</i>), so two bookings (<i>or a
+     * booking and a recurring booking</i>) of the same room saved at the same
+     * time can't both pass the check.
+     *
+     * @param booking Booking to be saved.
+     * @return The booking saved by the repository.
+     * @throws BookingConflictException If the booking has a conflict with a
+     * different booking of the same room.
+     * @throws RoomDoesntExistException If the room of the booking doesn't
+     * exist.
+     */
+    public Booking saveIfAvailable(Booking booking) throws BookingConflictException, RoomDoesntExistException {
+        return this.saveIfAvailable(booking, booking.getRoom().getId());
+    }
+
+    /**
+     * Same as {@link #saveIfAvailable(Booking)}, but booking the room with
+     * the id {@code roomId}, which is looked up once, when it's locked, and
+     * set as the room of the booking (<i>so the callers don't look it up
+     * themselves</i>).
+     * <br>
+     * The booking has to keep the room it had until then, as the calendar of
+     * that room changes too when the booking is moved: its room is read
+     * before changing it, instead of from the database, where a managed
+     * booking (<i>such as the ones read during a request, with
+     * {@code spring.jpa.open-in-view}</i>) is flushed with its new room
+     * before the first query.
+     *
+     * @param booking Booking to be saved.
+     * @param roomId Id of the room to book.
+     * @return The booking saved by the repository.
+     * @throws BookingConflictException If the booking has a conflict with a
+     * different booking of the room.
+     * @throws RoomDoesntExistException If the room doesn't exist.
+     */
+    public Booking saveIfAvailable(Booking booking, long roomId) throws BookingConflictException, RoomDoesntExistException {
+        boolean created = booking.getId() == null;
+        Long previousRoomId = created || booking.getRoom() == null ? null : booking.getRoom().getId();
+
+        if (this.exclusionConstraint.isEmpty()) {
+            Booking saved = this.writeLockingRoom(roomId, room -> {
+                booking.setRoom(room);
+                Optional<Booking> conflictedBooking = this.findConflict(roomId, booking.getStartDate(), booking.getEndDate(), booking.getId());
+                if (conflictedBooking.isPresent()) {
+                    throw this.conflictException(booking, conflictedBooking);
+                }
+                return this.save(booking, previousRoomId, roomId);
+            });
+            if (created) {
+                this.metrics.bookingCreated();
+            }
+            return saved;
+        }
+
+        try {
+            Booking saved = this.writeLockingRoom(roomId, room -> {
+                booking.setRoom(room);
+                Set<Long> roomIds = roomIdsOf(roomId, previousRoomId);
+                // The insert is the conflict check, so it's timed along with
+                // the lookup of the recurring bookings, as findConflict is.
+                Timer.Sample conflictCheck = this.metrics.startConflictCheck();
+                Booking flushed;
+                try {
+                    // The constraint only covers the stored bookings.
+                    Optional<Booking> recurringConflict = this.findRecurringConflict(roomId, booking.getStartDate(), booking.getEndDate());
+                    if (recurringConflict.isPresent()) {
+                        throw this.conflictException(booking, recurringConflict);
+                    }
+                    flushed = this.bookingRepository.saveAndFlush(booking);
+                } finally {
+                    this.metrics.stopConflictCheck(conflictCheck);
+                }
+                this.afterSave(flushed, roomIds, roomId, created);
+                return flushed;
+            });
+            if (created) {
+                this.metrics.bookingCreated();
+            }
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            if (!BookingExclusionConstraint.isViolation(e)) {
+                throw e;
+            }
+            // Only the rejected bookings pay for the lookup, once the
+            // transaction of the insert has been rolled back.
+            throw this.conflictException(booking, this.findConflict(roomId, booking.getStartDate(), booking.getEndDate(), booking.getId()));
+        }
     }
 
     /**
      * Attempts to delete a booking with the id {@code bookingId}, if it doesn't
      * exist, or couldn't be deleted, this function will silently be
      * ignored(<i>No exception thrown</i>).
+     * <br>
+     * The booking is removed in the same transaction that increments the
+     * calendar version of its room, so the bookings of the room are never
+     * read without it under the previous version, and the room is locked
+     * first (<i>see {@link #lockRooms}</i>), as with the other writes.
      *
      * @param bookingId Id of the booking to be removed.
      */
+    @Transactional
     public void delete(long bookingId) {
+        Optional<BookingSummary> deleted = this.bookingRepository.findSummaryById(bookingId);
+        if (deleted.isEmpty()) {
+            return;
+        }
+
+        BookingSummary booking = deleted.get();
+        this.lockRooms(List.of(booking.roomId()));
         this.bookingRepository.deleteById(bookingId);
+        this.intervalIndex.ifPresent(index -> afterCommit(() -> index.remove(bookingId)));
+        this.occupancyIndex.ifPresent(index -> afterCommit(() -> index.remove(bookingId)));
+        this.roomRepository.incrementCalendarVersions(List.of(booking.roomId()));
+        this.eventPublisher.publishEvent(BookingChangeEvent.of(BookingChangeEvent.Type.DELETED, booking));
+    }
+
+    /**
+     * Creates all the bookings of the batch that are valid and don't have a
+     * conflict with a stored booking nor with a previous booking of the
+     * batch.
+     * <br>
+     * All the rooms are looked up with a single query, and so are the stored
+     * bookings that could have a conflict with the batch, the bookings created
+     * are inserted in JDBC batches.
+     * <br>
+     * The rooms are locked by that query before checking the batch, as
+     * {@link #saveIfAvailable} locks its room (<i>see {@link #lockRooms}</i>),
+     * so the bookings saved meanwhile can't have a conflict with the batch.
+     *
+     * @param requests Bookings to create, the {@code null} ones (<i>such as
+     * a {@code null} in the JSON array</i>) are rejected as
+     * {@link Status#INVALID_REQUEST}.
+     * @return The result of each booking of the batch, in the same order.
+     * @throws BookingControllerException If the batch has more than
+     * {@link #MAX_BATCH_SIZE} bookings, or the
+     * {@link BookingExclusionConstraint} (<i>if enabled</i>) rejected a
+     * booking of the batch, in which case no booking is created.
+     */
+    @Transactional(rollbackFor = BookingControllerException.class)
+    public List<BookingBatchResult> saveBatch(List<BookingRequest> requests) throws BookingControllerException {
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new BookingBatchTooLargeException(requests.size(), MAX_BATCH_SIZE);
+        }
+
+        BookingBatchResult[] results = new BookingBatchResult[requests.size()];
+        Set<Long> roomIds = requests.stream()
+                .filter(Objects::nonNull)
+                .map(BookingRequest::roomId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Room> rooms = this.lockRooms(roomIds).stream()
+                .collect(Collectors.toMap(Room::getId, Function.identity()));
+
+        List<Integer> candidates = new ArrayList<>();
+        LocalDateTime minStartDate = LocalDateTime.MAX;
+        LocalDateTime maxEndDate = LocalDateTime.MIN;
+        for (int i = 0; i < requests.size(); i++) {
+            BookingRequest request = requests.get(i);
+            if (request == null || request.organizer() == null || request.startDate() == null || request.endDate() == null || request.roomId() == null) {
+                results[i] = BookingBatchResult.failed(i, Status.INVALID_REQUEST, "Faltan campos obligatorios de la reserva");
+            } else if (!BookingUtils.isValidDateRange(request.startDate(), request.endDate())) {
+                this.metrics.invalidDatesRejected();
+                results[i] = BookingBatchResult.failed(i, Status.INVALID_DATES, new BookingInvalidDatesException(request.startDate(), request.endDate()).getMessage());
+            } else if (!rooms.containsKey(request.roomId())) {
+                results[i] = BookingBatchResult.failed(i, Status.ROOM_NOT_FOUND, new RoomDoesntExistException(request.roomId()).getMessage());
+            } else {
+                candidates.add(i);
+                minStartDate = request.startDate().isBefore(minStartDate) ? request.startDate() : minStartDate;
+                maxEndDate = request.endDate().isAfter(maxEndDate) ? request.endDate() : maxEndDate;
+            }
+        }
+
+        // The bookings accepted are added to the index as the batch is checked,
+        // so later bookings of the batch can't have a conflict with them.
+        BookingIntervalIndex batchIndex = BookingIntervalIndex.of(candidates.isEmpty()
+                ? List.of()
+                : this.bookingRepository.findIntervalsOverlapping(rooms.keySet(), minStartDate, maxEndDate));
+        if (!candidates.isEmpty()) {
+            // Occurrences have ids below -MAX_OCCURRENCES, so they don't clash
+            // with the ones of the batch.
+            for (RecurringBooking recurring : this.recurringBookingRepository.findOverlappingInRooms(rooms.keySet(), minStartDate, maxEndDate)) {
+                recurring.expandIntervals(minStartDate, maxEndDate).forEach(batchIndex::put);
+            }
+        }
+        List<Integer> accepted = new ArrayList<>();
+        List<Booking> bookings = new ArrayList<>();
+        for (int i : candidates) {
+            BookingRequest request = requests.get(i);
+            Optional<BookingInterval> conflict = batchIndex.findOverlapping(request.roomId(), request.startDate(), request.endDate())
+                    .stream()
+                    .findFirst();
+
+            if (conflict.isPresent()) {
+                this.metrics.conflictRejected();
+                results[i] = BookingBatchResult.failed(i, Status.CONFLICT, new BookingConflictException(
+                        request.startDate(),
+                        request.endDate(),
+                        conflict.get().startDate(),
+                        conflict.get().endDate(),
+                        request.roomId()
+                ).getMessage());
+                continue;
+            }
+
+            // Bookings not saved yet are indexed with negative ids.
+            batchIndex.put(new BookingInterval(-(i + 1L), request.roomId(), request.startDate(), request.endDate()));
+            accepted.add(i);
+            bookings.add(new Booking(request.organizer(), request.startDate(), request.endDate(), rooms.get(request.roomId())));
+        }
+
+        List<Booking> saved;
+        try {
+            saved = this.bookingRepository.saveAllAndFlush(bookings);
+        } catch (DataIntegrityViolationException e) {
+            if (this.exclusionConstraint.isEmpty() || !BookingExclusionConstraint.isViolation(e)) {
+                throw e;
+            }
+            throw new BookingBatchConflictException();
+        }
+
+        this.durationBound.extendTo(saved);
+        for (int i = 0; i < saved.size(); i++) {
+            Booking booking = saved.get(i);
+            this.index(booking);
+            this.metrics.bookingCreated();
+            // Sent once the transaction is committed.
+            this.eventPublisher.publishEvent(BookingChangeEvent.of(BookingChangeEvent.Type.CREATED, BookingSummary.of(booking)));
+            results[accepted.get(i)] = BookingBatchResult.created(accepted.get(i), booking);
+        }
+        if (!saved.isEmpty()) {
+            this.roomRepository.incrementCalendarVersions(saved.stream().map(booking -> booking.getRoom().getId()).collect(Collectors.toSet()));
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Moves up to {@code batchSize} of the bookings that ended before
+     * {@code cutoff} to the archive, with a statement to copy them and another
+     * one to remove them.
+     * <br>
+     * Only one instance of the API archives bookings at a time (<i>see
+     * {@link JobLock}</i>), as the same bookings would be copied twice.
+     *
+     * @param cutoff Date the bookings have to end before.
+     * @param batchSize Maximum number of bookings to archive.
+     * @return The number of bookings archived, lower than {@code batchSize}
+     * once there are no more left, or {@code 0} if a different instance is
+     * archiving them.
+     */
+    @Transactional
+    public int archiveEndedBefore(LocalDateTime cutoff, int batchSize) {
+        if (!this.jobLock.tryLock(BookingArchiver.JOB)) {
+            return 0;
+        }
+        List<BookingInterval> intervals = this.bookingRepository.findIntervalsEndedBefore(cutoff, Limit.of(batchSize));
+        if (intervals.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> bookingIds = intervals.stream().map(BookingInterval::bookingId).toList();
+        this.archivedBookingRepository.archive(bookingIds, LocalDateTime.now());
+        this.bookingRepository.deleteByIdIn(bookingIds);
+        this.intervalIndex.ifPresent(index -> afterCommit(() -> bookingIds.forEach(index::remove)));
+        this.occupancyIndex.ifPresent(index -> afterCommit(() -> bookingIds.forEach(index::remove)));
+        this.roomRepository.incrementCalendarVersions(intervals.stream().map(BookingInterval::roomId).filter(Objects::nonNull).distinct().toList());
+        return intervals.size();
+    }
+
+    /**
+     * @return All the recurring bookings, without their occurrences.
+     */
+    @Transactional(readOnly = true)
+    public List<RecurringBooking> getAllRecurring() {
+        return this.recurringBookingRepository.findAll();
+    }
+
+    /**
+     * @param recurringBookingId Id of the recurring booking.
+     * @return The recurring booking, or an empty {@link Optional} if it
+     * doesn't exist.
+     */
+    @Transactional(readOnly = true)
+    public Optional<RecurringBooking> findRecurringById(long recurringBookingId) {
+        return this.recurringBookingRepository.findById(recurringBookingId);
+    }
+
+    /**
+     * Saves the recurring booking only if none of its occurrences has a
+     * conflict with a booking or an occurrence of a different recurring
+     * booking of the same room.
+     * <br>
+     * The conflicts of all the occurrences are checked without expanding
+     * them: the bookings between the first and the last occurrence are loaded
+     * (<i>as intervals</i>) with a single query, and each of them is compared
+     * with the occurrence closest to it in constant time, while the
+     * occurrences of each of the other recurring bookings of the room are
+     * walked along with the occurrences of this one. So the cost is a query
+     * for the bookings and another one for the recurring bookings, plus a
+     * walk of {@code O(n + m)} for each other recurring booking, {@code n} and
+     * {@code m} being the occurrences of both in the range of time they share.
+     * <br>
+     * As with {@link #saveIfAvailable}, the lookup and the insert run in a
+     * transaction that locks the room first.
+     *
+     * @param recurringBooking Recurring booking to be saved.
+     * @return The recurring booking saved by the repository.
+     * @throws BookingConflictException If an occurrence has a conflict.
+     * @throws RoomDoesntExistException If the room doesn't exist.
+     */
+    public RecurringBooking saveRecurringIfAvailable(RecurringBooking recurringBooking) throws BookingConflictException, RoomDoesntExistException {
+        return this.saveRecurringIfAvailable(recurringBooking, recurringBooking.getRoom().getId());
+    }
+
+    /**
+     * Same as {@link #saveRecurringIfAvailable(RecurringBooking)}, but booking
+     * the room with the id {@code roomId}, looked up once, when it's locked.
+     *
+     * @param recurringBooking Recurring booking to be saved.
+     * @param roomId Id of the room to book.
+     * @return The recurring booking saved by the repository.
+     * @throws BookingConflictException If an occurrence has a conflict.
+     * @throws RoomDoesntExistException If the room doesn't exist.
+     */
+    public RecurringBooking saveRecurringIfAvailable(RecurringBooking recurringBooking, long roomId) throws BookingConflictException, RoomDoesntExistException {
+        RecurringBooking saved = this.writeLockingRoom(roomId, room -> {
+            recurringBooking.setRoom(room);
+            Optional<Booking> conflict = this.metrics.timeConflictCheck(() -> this.lookUpConflict(recurringBooking));
+            if (conflict.isPresent()) {
+                Booking occurrence = recurringBooking.findOverlapping(conflict.get().getStartDate(), conflict.get().getEndDate()).orElseThrow();
+                throw this.conflictException(occurrence, conflict);
+            }
+
+            RecurringBooking inserted = this.recurringBookingRepository.save(recurringBooking);
+            this.occupancyIndex.ifPresent(index -> afterCommit(() -> index.putRecurring(inserted)));
+            return inserted;
+        });
+        this.metrics.bookingCreated();
+        this.eventPublisher.publishEvent(BookingChangeEvent.of(BookingChangeEvent.Type.RECURRING_CREATED, BookingSummary.of(saved.occurrence(0))));
+        return saved;
+    }
+
+    /**
+     * Deletes the recurring booking with the given id, along with all its
+     * occurrences.
+     *
+     * @param recurringBookingId Id of the recurring booking.
+     * @return The recurring booking removed, or an empty {@link Optional} if
+     * it doesn't exist.
+     */
+    public Optional<RecurringBooking> deleteRecurring(long recurringBookingId) {
+        Optional<RecurringBooking> deleted = this.recurringBookingRepository.findById(recurringBookingId);
+        deleted.ifPresent(recurring -> {
+            this.recurringBookingRepository.delete(recurring);
+            this.occupancyIndex.ifPresent(index -> afterCommit(() -> index.removeRecurring(recurring)));
+            this.roomRepository.incrementCalendarVersions(List.of(recurring.getRoom().getId()));
+            this.eventPublisher.publishEvent(BookingChangeEvent.of(BookingChangeEvent.Type.RECURRING_DELETED, BookingSummary.of(recurring.occurrence(0))));
+        });
+        return deleted;
+    }
+
+    /**
+     * Locks the room until the current transaction ends, as the writes of its
+     * bookings do (<i>see {@link #lockRooms}</i>), such as before removing
+     * it, so its bookings aren't written meanwhile.
+     *
+     * @param roomId Id of the room.
+     * @return The room locked, or an empty {@link Optional} if it doesn't
+     * exist.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<Room> lockRoom(long roomId) {
+        return this.lockRooms(List.of(roomId)).stream().findFirst();
+    }
+
+    /**
+     * Removes all the bookings and recurring bookings of the room with the
+     * given id with a statement each, without loading them.
+     * <br>
+     * The room has to be locked first (<i>see {@link #lockRoom}</i>), which
+     * also keeps the bookings of the room out of the indexes until they have
+     * been removed from them.
+     *
+     * @param roomId Id of the room of the bookings to be removed.
+     * @return The number of bookings and recurring bookings removed.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int deleteAllForRoom(long roomId) {
+        int deleted = this.bookingRepository.deleteByRoomId(roomId) + this.recurringBookingRepository.deleteByRoomId(roomId);
+        this.intervalIndex.ifPresent(index -> afterCommit(() -> index.removeRoom(roomId)));
+        this.occupancyIndex.ifPresent(index -> afterCommit(() -> index.removeRoom(roomId)));
+        return deleted;
+    }
+
+    /**
+     * @param roomId Id of the room.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @see BookingUtils#isDateRangeInRange
+     * @return {@code true} if the room has no bookings that have a conflict
+     * with the range of time, {@code false} otherwise.
+     */
+    @Transactional(readOnly = true)
+    public boolean isRoomAvailable(long roomId, LocalDateTime startDate, LocalDateTime endDate) {
+        return !this.bookingRepository.existsByRoomIdAndStartDateBetweenAndEndDateGreaterThanEqual(roomId, this.durationBound.earliestStartOf(startDate), endDate, startDate)
+                && this.findRecurringConflict(roomId, startDate, endDate).isEmpty();
+    }
+
+    /**
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @return The ids of the rooms with an occurrence of a recurring booking
+     * that has a conflict with the range of time.
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> findRoomsWithRecurringConflict(LocalDateTime startDate, LocalDateTime endDate) {
+        return this.recurringBookingRepository.findAllOverlapping(startDate, endDate).stream()
+                .filter(recurring -> recurring.findOverlapping(startDate, endDate).isPresent())
+                .map(recurring -> recurring.getRoom().getId())
+                .collect(Collectors.toSet());
     }
 
     /**
@@ -58,15 +898,87 @@ public class BookingService {
      *
      * @param roomId Id of the room of the bookings to be returned.
      * @see getBookingsForRoomInRange
-     * @return A list of the bookings related to the room.
+     * @return A list of the bookings related to the room, followed by the
+     * occurrences of its recurring bookings.
      */
+    @Transactional(readOnly = true)
     public List<Booking> getBookingsForRoom(long roomId) {
-        return this.bookingRepository.findByRoomId(roomId);
+        List<Booking> bookings = new ArrayList<>(this.bookingRepository.findByRoomId(roomId));
+        this.recurringBookingRepository.findByRoomId(roomId).forEach(recurring -> bookings.addAll(recurring.expand()));
+        return bookings;
+    }
+
+    /**
+     * Reads the version of the calendar of the room (<i>see
+     * {@link RoomRepository#findCalendarVersion}</i>) and its bookings in the
+     * same transaction, which sees a single snapshot of the database, so the
+     * version always matches the bookings even if they change meanwhile.
+     *
+     * @param <T> Representation of the bookings.
+     * @param roomId Id of the room.
+     * @param isCurrent Whether the client already has the bookings of the
+     * version, in which case they aren't read.
+     * @param reader Reads the bookings of the room, such as
+     * {@link #getBookingsForRoom}.
+     * @return The version and the bookings of the room.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public <T> RoomCalendar<T> getCalendar(long roomId, Predicate<RoomCalendarVersion> isCurrent, LongFunction<T> reader) {
+        Optional<RoomCalendarVersion> version = this.roomRepository.findCalendarVersion(roomId);
+        if (version.isPresent() && isCurrent.test(version.get())) {
+            return new RoomCalendar<>(version.get(), null);
+        }
+        return new RoomCalendar<>(version.orElse(null), reader.apply(roomId));
+    }
+
+    /**
+     * Same as {@link #getBookingsForRoom}, but in the compact form of the
+     * bookings, which doesn't load the room.
+     *
+     * @param roomId Id of the room of the bookings to be returned.
+     * @param includeRooms Whether the room has to be included in the list.
+     * @return The compact list of the bookings related to the room.
+     */
+    @Transactional(readOnly = true)
+    public BookingSummaryList getSummariesForRoom(long roomId, boolean includeRooms) {
+        return this.summaryList(this.bookingRepository.findSummariesByRoomId(roomId), this.recurringBookingRepository.findByRoomId(roomId), includeRooms);
+    }
+
+    /**
+     * @param storedBookings Bookings of the list.
+     * @param recurringBookings Recurring bookings whose occurrences are added
+     * to the list.
+     * @param includeRooms Whether the rooms referenced by the bookings have to
+     * be looked up (<i>with a single query</i>) and included in the list.
+     * @return The list of bookings.
+     */
+    private BookingSummaryList summaryList(List<BookingSummary> storedBookings, List<RecurringBooking> recurringBookings, boolean includeRooms) {
+        List<BookingSummary> bookings = new ArrayList<>(storedBookings);
+        for (RecurringBooking recurring : recurringBookings) {
+            recurring.expand().forEach(occurrence -> bookings.add(BookingSummary.of(occurrence)));
+        }
+
+        if (!includeRooms) {
+            return new BookingSummaryList(bookings, null);
+        }
+
+        Set<Long> roomIds = bookings.stream()
+                .map(BookingSummary::roomId)
+                .collect(Collectors.toSet());
+        Map<Long, Room> rooms = this.roomRepository.findAllById(roomIds).stream()
+                .collect(Collectors.toMap(Room::getId, Function.identity(), (a, b) -> a, TreeMap::new));
+        return new BookingSummaryList(bookings, rooms);
     }
 
     /**
      * Returns all the bookings associated with the room of the given id, that
      * take place between {@code startDate} and {@code endDate}.
+     * <br>
+     * If the {@link BookingIntervalIndex} is enabled the bookings are looked
+     * up in it, otherwise the database filters them using the
+     * {@code (room_id, start_date, end_date)} index, in both cases only the
+     * bookings in the range get loaded. Only the occurrences of the recurring
+     * bookings in the range are computed.
      *
      * @param roomId Id of the room of the bookings to be returned.
      * @param startDate Start of the range of time.
@@ -74,11 +986,340 @@ public class BookingService {
      * @see getBookingsForRoom
      * @return A list of all the bookings that take place between
      * {@code startDate} and {@code endDate} for the room with the id
-     * {@code roomId}.
+     * {@code roomId}, sorted by their start date.
      */
+    @Transactional(readOnly = true)
     public List<Booking> getBookingsForRoomInRange(long roomId, LocalDateTime startDate, LocalDateTime endDate) {
-        return this.getBookingsForRoom(roomId).stream()
-                .filter(b -> BookingUtils.isDateRangeInRange(startDate, endDate, b.getStartDate(), b.getEndDate()))
+        List<Booking> occurrences = new ArrayList<>();
+        for (RecurringBooking recurring : this.recurringBookingRepository.findOverlapping(roomId, startDate, endDate)) {
+            occurrences.addAll(recurring.expand(startDate, endDate));
+        }
+
+        List<Booking> bookings = this.getStoredBookingsForRoomInRange(roomId, startDate, endDate);
+        if (occurrences.isEmpty()) {
+            return bookings;
+        }
+        occurrences.addAll(bookings);
+        occurrences.sort(Comparator.comparing(Booking::getStartDate));
+        return occurrences;
+    }
+
+    private List<Booking> getStoredBookingsForRoomInRange(long roomId, LocalDateTime startDate, LocalDateTime endDate) {
+        if (this.intervalIndex.isEmpty()) {
+            return this.bookingRepository.findOverlapping(roomId, startDate, endDate);
+        }
+
+        List<Long> bookingIds = this.intervalIndex.get().findOverlapping(roomId, startDate, endDate).stream()
+                .map(BookingInterval::bookingId)
+                .toList();
+
+        if (bookingIds.isEmpty()) {
+            return List.of();
+        }
+
+        return this.bookingRepository.findAllById(bookingIds).stream()
+                .sorted(Comparator.comparing(Booking::getStartDate))
                 .toList();
     }
+
+    /**
+     * Returns the ranges of time in which the room with the given id is free,
+     * inside of {@code startDate} and {@code endDate}.
+     *
+     * @param roomId Id of the room.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @param minDuration Minimum duration of the free ranges returned.
+     * @see BookingUtils#findFreeSlots
+     * @return The free ranges of time, sorted by their start date.
+     */
+    @Transactional(readOnly = true)
+    public List<TimeSlot> getFreeSlotsForRoom(long roomId, LocalDateTime startDate, LocalDateTime endDate, Duration minDuration) {
+        return BookingUtils.findFreeSlots(this.getBookingsForRoomInRange(roomId, startDate, endDate), startDate, endDate, minDuration);
+    }
+
+    /**
+     * Looks for a booking of the room with the given id that has a conflict
+     * with the range of time specified.
+     *
+     * @param roomId Id of the room.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @param excludedBookingId Id of a booking to ignore (<i>such as the
+     * booking being updated</i>), or {@code null}.
+     * @see BookingUtils#isDateRangeInRange
+     * @return An {@link Optional} containing the first booking (<i>by start
+     * date</i>) with a conflict, or the occurrence of a recurring booking with
+     * a conflict, or an empty {@link Optional} if there is none.
+     */
+    public Optional<Booking> findConflict(long roomId, LocalDateTime startDate, LocalDateTime endDate, Long excludedBookingId) {
+        return this.metrics.timeConflictCheck(() -> this.lookUpConflict(roomId, startDate, endDate, excludedBookingId)
+                .or(() -> this.findRecurringConflict(roomId, startDate, endDate)));
+    }
+
+    /**
+     * @param roomId Id of the room.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @return The first occurrence of a recurring booking of the room that has
+     * a conflict with the range of time, computed without expanding the
+     * recurring bookings.
+     */
+    private Optional<Booking> findRecurringConflict(long roomId, LocalDateTime startDate, LocalDateTime endDate) {
+        return this.recurringBookingRepository.findOverlapping(roomId, startDate, endDate).stream()
+                .map(recurring -> recurring.findOverlapping(startDate, endDate))
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+
+    private Optional<Booking> lookUpConflict(long roomId, LocalDateTime startDate, LocalDateTime endDate, Long excludedBookingId) {
+        if (this.intervalIndex.isEmpty()) {
+            return this.bookingRepository.findConflicts(roomId, startDate, endDate, excludedBookingId, Limit.of(1))
+                    .stream()
+                    .findFirst();
+        }
+
+        return this.intervalIndex.get().findOverlapping(roomId, startDate, endDate).stream()
+                .filter(interval -> !Objects.equals(interval.bookingId(), excludedBookingId))
+                .findFirst()
+                .flatMap(interval -> this.bookingRepository.findById(interval.bookingId()));
+    }
+
+    /**
+     * @see #saveRecurringIfAvailable
+     * @return A booking or an occurrence of a different recurring booking that
+     * has a conflict with an occurrence of the recurring booking.
+     */
+    private Optional<Booking> lookUpConflict(RecurringBooking recurringBooking) {
+        long roomId = recurringBooking.getRoom().getId();
+        LocalDateTime startDate = recurringBooking.getStartDate();
+        LocalDateTime endDate = recurringBooking.getLastEndDate();
+
+        List<BookingInterval> intervals = this.intervalIndex.isPresent()
+                ? this.intervalIndex.get().findOverlapping(roomId, startDate, endDate)
+                : this.bookingRepository.findIntervalsOverlapping(List.of(roomId), startDate, endDate);
+        for (BookingInterval interval : intervals) {
+            if (recurringBooking.findOverlapping(interval.startDate(), interval.endDate()).isPresent()) {
+                return this.bookingRepository.findById(interval.bookingId());
+            }
+        }
+
+        return this.recurringBookingRepository.findOverlapping(roomId, startDate, endDate).stream()
+                .filter(other -> !Objects.equals(other.getId(), recurringBooking.getId()))
+                .map(recurringBooking::findOverlapping)
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+
+    /**
+     * Returns the ids of the rooms whose calendar changes when a booking is
+     * saved: its room, and the room it had before (<i>if it's an update
+     * moving it to a different room</i>).
+     *
+     * @param roomId Id of the room of the booking.
+     * @param previousRoomId Id of the room the booking had before, or
+     * {@code null}.
+     * @return The ids of the rooms.
+     */
+    private static Set<Long> roomIdsOf(long roomId, Long previousRoomId) {
+        Set<Long> roomIds = new HashSet<>();
+        roomIds.add(roomId);
+        if (previousRoomId != null) {
+            roomIds.add(previousRoomId);
+        }
+        return roomIds;
+    }
+
+    /**
+     * Updates the indexes, the duration of the longest booking (<i>see
+     * {@link BookingDurationBound}</i>) and the calendar versions of the rooms
+     * with the saved booking, and publishes the change.
+     *
+     * @param saved Booking saved.
+     * @param roomIds Rooms whose calendar changed (<i>see
+     * {@link #roomIdsOf}</i>).
+     * @param lockedRoomId Room locked by {@link #writeLockingRoom}, whose
+     * calendar version it increments, or {@code null}.
+     * @param created Whether the booking has been created or updated.
+     */
+    private void afterSave(Booking saved, Set<Long> roomIds, Long lockedRoomId, boolean created) {
+        this.durationBound.extendTo(List.of(saved));
+        this.index(saved);
+        Set<Long> changedRoomIds = new HashSet<>(roomIds);
+        changedRoomIds.remove(lockedRoomId);
+        if (!changedRoomIds.isEmpty()) {
+            this.roomRepository.incrementCalendarVersions(changedRoomIds);
+        }
+
+        BookingSummary booking = BookingSummary.of(saved);
+        BookingChangeEvent.Type type = created ? BookingChangeEvent.Type.CREATED : BookingChangeEvent.Type.UPDATED;
+        // A booking moved to a different room is also notified to the previous one.
+        for (long roomId : roomIds) {
+            this.eventPublisher.publishEvent(new BookingChangeEvent(type, roomId, booking));
+        }
+    }
+
+    /**
+     * Updates the in-memory indexes (<i>if enabled</i>) with the saved
+     * booking.
+     *
+     * @param booking Booking saved.
+     */
+    private void index(Booking booking) {
+        BookingInterval interval = BookingInterval.of(booking);
+        this.intervalIndex.ifPresent(index -> afterCommit(() -> index.put(interval)));
+        this.occupancyIndex.ifPresent(index -> afterCommit(() -> index.put(interval)));
+    }
+
+    /**
+     * Runs the update of an in-memory index once the current transaction has
+     * been committed, or right away if there is no transaction, so the index
+     * never has changes that were rolled back (<i>as the events, see
+     * {@link BookingEventBroadcaster#publish}</i>).
+     *
+     * @param update Update of the index.
+     */
+    private static void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+
+    /**
+     * Runs the write in a transaction that starts by locking the row of the
+     * room (<i>see {@link RoomRepository#findByIdForUpdate}</i>), so the
+     * conflict checks of the bookings of a room and their inserts don't
+     * interleave with the ones of a different write of the same room, and
+     * increments the calendar version of the room, as the write changes it.
+     * <br>
+     * If the {@link BookingExclusionConstraint} is enabled, the row is locked
+     * by the increment of the calendar version itself (<i>see
+     * {@link RoomRepository#lockIncrementingCalendarVersion}</i>), which also
+     * returns the room, instead of by a lookup with a separate increment, as
+     * the constraint already serializes the inserts of overlapping bookings.
+     * The row still has to be locked for the recurring bookings, which the
+     * constraint doesn't cover: a booking and a recurring booking of the same
+     * room saved at the same time would both miss the other one.
+     * <br>
+     * The transaction is rolled back if the write throws.
+     * <br>
+     * If the {@link BookingIntervalIndex} is enabled, the write also holds a
+     * lock of the room in memory until the index has been updated (<i>see
+     * {@link #afterCommit}</i>), as the row of the room is already unlocked
+     * by then, and a different write of the room would look up its conflicts
+     * in an index without the booking just committed.
+     *
+     * @param roomId Id of the room.
+     * @param write Conflict check and insert, given the room locked (<i>the
+     * only lookup of the room of the write</i>).
+     * @return The result of the write.
+     * @throws BookingConflictException If the write found a conflict.
+     * @throws RoomDoesntExistException If the room doesn't exist.
+     */
+    private <T> T writeLockingRoom(long roomId, RoomWrite<T> write) throws BookingConflictException, RoomDoesntExistException {
+        Lock indexLock = this.intervalIndex.isPresent() ? this.roomLock(roomId) : null;
+        if (indexLock != null) {
+            indexLock.lock();
+        }
+        try {
+            TransactionStatus transaction = this.transactionManager.getTransaction(TransactionDefinition.withDefaults());
+            T result;
+            try {
+                Optional<Room> locked = this.exclusionConstraint.isPresent()
+                        ? this.roomRepository.lockIncrementingCalendarVersion(roomId)
+                        : this.roomRepository.findByIdForUpdate(roomId);
+                Room room = locked.orElseThrow(() -> new RoomDoesntExistException(roomId));
+                result = write.run(room);
+                if (this.exclusionConstraint.isEmpty()) {
+                    this.roomRepository.incrementCalendarVersions(List.of(roomId));
+                }
+            } catch (BookingConflictException | RoomDoesntExistException | RuntimeException | Error e) {
+                this.transactionManager.rollback(transaction);
+                throw e;
+            }
+            this.transactionManager.commit(transaction);
+            return result;
+        } finally {
+            if (indexLock != null) {
+                indexLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Locks the rooms until the current transaction ends, as
+     * {@link #writeLockingRoom} does, for the writes that already run in a
+     * transaction: their rows, and their locks in memory if the
+     * {@link BookingIntervalIndex} is enabled, released once the transaction
+     * has completed (<i>after the indexes have been updated</i>).
+     * <br>
+     * Both are taken in the same order by every write (<i>the stripes by
+     * their position, then the rows by their id</i>), so two writes of the
+     * same rooms can't wait for each other.
+     *
+     * @param roomIds Ids of the rooms.
+     * @return The rooms that exist, sorted by their id.
+     */
+    private List<Room> lockRooms(Collection<Long> roomIds) {
+        if (roomIds.isEmpty()) {
+            return List.of();
+        }
+        if (this.intervalIndex.isPresent()) {
+            List<Lock> indexLocks = roomIds.stream()
+                    .map(roomId -> Math.floorMod(Long.hashCode(roomId), ROOM_LOCK_STRIPES))
+                    .distinct()
+                    .sorted()
+                    .map(stripe -> this.roomLocks[stripe])
+                    .toList();
+            indexLocks.forEach(Lock::lock);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    indexLocks.forEach(Lock::unlock);
+                }
+            });
+        }
+        return this.roomRepository.findAllByIdForUpdate(roomIds);
+    }
+
+    /**
+     * @param roomId Id of the room.
+     * @return The lock in memory of the room, shared with the rooms of the
+     * same stripe.
+     */
+    private Lock roomLock(long roomId) {
+        return this.roomLocks[Math.floorMod(Long.hashCode(roomId), ROOM_LOCK_STRIPES)];
+    }
+
+    /**
+     * @see #writeLockingRoom
+     */
+    @FunctionalInterface
+    private interface RoomWrite<T> {
+
+        T run(Room room) throws BookingConflictException;
+    }
+
+    private BookingConflictException conflictException(Booking booking, Optional<Booking> conflictedBooking) {
+        this.metrics.conflictRejected();
+        if (conflictedBooking.isEmpty()) {
+            return new BookingConflictException(booking.getStartDate(), booking.getEndDate(), booking.getRoom().getId());
+        }
+
+        return new BookingConflictException(
+                booking.getStartDate(),
+                booking.getEndDate(),
+                conflictedBooking.get().getStartDate(),
+                conflictedBooking.get().getEndDate(),
+                booking.getRoom().getId()
+        );
+    }
 }
@@ -0,0 +1,44 @@
+package me.folgue.salas.bookings;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.time.LocalDateTime;
+
+/**
+ * Compact view of a {@link Booking}, which references its room by id instead
+ * of containing it, selected directly from the booking table (<i>without
+ * loading the room nor the entity</i>).
+ *
+ * @param id Id of the booking.
+ * @param organizer Organizer of the booking.
+ * @param startDate Start of the booking.
+ * @param endDate End of the booking.
+ * @param roomId Id of the room booked.
+ * @param recurringBookingId Id of the {@link RecurringBooking} the booking is
+ * an occurrence of, if it is one.
+ * @author folgue
+ */
+public record BookingSummary(
+        Long id,
+        String organizer,
+        LocalDateTime startDate,
+        LocalDateTime endDate,
+        Long roomId,
+        @JsonInclude(JsonInclude.Include.NON_NULL) Long recurringBookingId
+) {
+
+    /**
+     * Used by the queries of {@link BookingRepository}, as the stored bookings
+     * aren't occurrences.
+     */
+    public BookingSummary(Long id, String organizer, LocalDateTime startDate, LocalDateTime endDate, Long roomId) {
+        this(id, organizer, startDate, endDate, roomId, null);
+    }
+
+    /**
+     * @param booking Booking to take the information from.
+     * @return The compact view of the booking.
+     */
+    public static BookingSummary of(Booking booking) {
+        return new BookingSummary(booking.getId(), booking.getOrganizer(), booking.getStartDate(), booking.getEndDate(), booking.getRoom().getId(), booking.getRecurringBookingId());
+    }
+}
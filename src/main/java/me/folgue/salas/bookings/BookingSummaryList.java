@@ -0,0 +1,20 @@
+package me.folgue.salas.bookings;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import java.util.Map;
+import me.folgue.salas.rooms.Room;
+
+/**
+ * List of bookings in their compact form, along with the rooms they
+ * reference (<i>only if requested, each room is included once, no matter how
+ * many bookings it has</i>).
+ *
+ * @param bookings Bookings of the list.
+ * @param rooms Rooms of the bookings by their id, or {@code null} if they
+ * weren't requested.
+ * @author folgue
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BookingSummaryList(List<BookingSummary> bookings, Map<Long, Room> rooms) {
+}
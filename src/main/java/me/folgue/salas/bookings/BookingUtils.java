@@ -1,6 +1,9 @@
 package me.folgue.salas.bookings;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 public class BookingUtils {
 
@@ -26,4 +29,72 @@ public class BookingUtils {
     public static boolean isValidDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         return !startDate.isEqual(endDate) && startDate.isBefore(endDate);
     }
+
+    /**
+     * @param startDate Start of a range of time, or {@code null}.
+     * @param maxDuration Duration of the longest booking (<i>see
+     * {@link BookingDurationBound}</i>).
+     * @return The earliest start of a booking that has a conflict with the
+     * range of time, or {@code null} if {@code startDate} is.
+     */
+    public static LocalDateTime earliestStartOf(LocalDateTime startDate, Duration maxDuration) {
+        return startDate == null ? null : startDate.minus(maxDuration);
+    }
+
+    /**
+     * @param startDate Start of the booking.
+     * @param endDate End of the booking.
+     * @return The duration of the booking in seconds, rounded up.
+     */
+    public static long durationSeconds(LocalDateTime startDate, LocalDateTime endDate) {
+        Duration duration = Duration.between(startDate, endDate);
+        return duration.toNanosPart() == 0 ? duration.toSeconds() : duration.toSeconds() + 1;
+    }
+
+    /**
+     * Returns the ranges of time inside of {@code startDate} and
+     * {@code endDate} that aren't taken by any of the given bookings, going
+     * through the bookings once.
+     * <br>
+     * <b>Note: </b>As {@link #isDateRangeInRange} is inclusive, and dates have
+     * a precision of minutes, the free ranges start one minute after the end of
+     * a booking and end one minute before the start of the next one, so a
+     * booking of exactly one of the ranges returned wouldn't have a conflict.
+     *
+     * @param bookings Bookings that take place in the range of time, sorted by
+     * their start date.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @param minDuration Minimum duration of the free ranges returned.
+     * @return The free ranges of time, sorted by their start date.
+     */
+    public static List<TimeSlot> findFreeSlots(List<Booking> bookings, LocalDateTime startDate, LocalDateTime endDate, Duration minDuration) {
+        List<TimeSlot> slots = new ArrayList<>();
+        // First instant that isn't taken by any of the bookings visited.
+        LocalDateTime freeFrom = startDate;
+
+        for (Booking booking : bookings) {
+            if (freeFrom.isAfter(endDate)) {
+                break;
+            }
+
+            LocalDateTime freeUntil = booking.getStartDate().minusMinutes(1);
+            addSlot(slots, freeFrom, freeUntil.isAfter(endDate) ? endDate : freeUntil, minDuration);
+
+            LocalDateTime afterBooking = booking.getEndDate().plusMinutes(1);
+            if (afterBooking.isAfter(freeFrom)) {
+                freeFrom = afterBooking;
+            }
+        }
+
+        addSlot(slots, freeFrom, endDate, minDuration);
+        return slots;
+    }
+
+    private static void addSlot(List<TimeSlot> slots, LocalDateTime startDate, LocalDateTime endDate, Duration minDuration) {
+        // Only ranges that could be booked are returned.
+        if (isValidDateRange(startDate, endDate) && Duration.between(startDate, endDate).compareTo(minDuration) >= 0) {
+            slots.add(new TimeSlot(startDate, endDate));
+        }
+    }
 }
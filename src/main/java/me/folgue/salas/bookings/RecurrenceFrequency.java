@@ -0,0 +1,27 @@
+package me.folgue.salas.bookings;
+
+import java.time.Duration;
+
+/**
+ * How often the occurrences of a {@link RecurringBooking} take place.
+ *
+ * @author folgue
+ */
+public enum RecurrenceFrequency {
+    DAILY(1),
+    WEEKLY(7);
+
+    private final int days;
+
+    RecurrenceFrequency(int days) {
+        this.days = days;
+    }
+
+    /**
+     * @param interval Number of days or weeks between occurrences.
+     * @return The time between the start of two consecutive occurrences.
+     */
+    public Duration period(int interval) {
+        return Duration.ofDays((long) this.days * interval);
+    }
+}
@@ -0,0 +1,320 @@
+package me.folgue.salas.bookings;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.annotation.Nonnull;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import me.folgue.salas.rooms.Room;
+
+/**
+ * Booking of a {@link Room} that repeats every day or week, stored as a rule
+ * (<i>its first occurrence, how often it repeats and how many times</i>)
+ * instead of a row per occurrence.
+ * <br>
+ * The occurrences are computed when they are needed, only for the range of
+ * time requested: occurrence {@code k} starts at
+ * {@code startDate + k * period}, so the ones that take place in a range can
+ * be found without visiting the rest.
+ *
+ * @see RecurrenceFrequency
+ * @author folgue
+ */
+@Entity
+@Table(indexes = {
+    // Backs the overlap queries of RecurringBookingRepository.
+    @Index(name = "idx_recurring_booking_room_dates", columnList = "room_id, start_date, last_end_date")
+})
+@NoArgsConstructor
+@Data
+public class RecurringBooking {
+
+    /**
+     * Maximum number of occurrences of a recurring booking.
+     */
+    public static final int MAX_OCCURRENCES = 1000;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recurring_booking_seq")
+    @SequenceGenerator(name = "recurring_booking_seq", sequenceName = "recurring_booking_seq", allocationSize = 50)
+    private Long id;
+
+    @Nonnull
+    private String organizer;
+
+    /**
+     * Start of the first occurrence.
+     */
+    @Nonnull
+    private LocalDateTime startDate;
+
+    /**
+     * End of the first occurrence.
+     */
+    @Nonnull
+    private LocalDateTime endDate;
+
+    @Nonnull
+    @Enumerated(EnumType.STRING)
+    private RecurrenceFrequency frequency;
+
+    /**
+     * Number of days or weeks between occurrences.
+     */
+    @Column(name = "recurrence_interval", nullable = false)
+    private int interval;
+
+    @Column(nullable = false)
+    private int occurrences;
+
+    /**
+     * End of the last occurrence, so the database can filter the recurring
+     * bookings that take place in a range of time.
+     */
+    @Nonnull
+    private LocalDateTime lastEndDate;
+
+    @ManyToOne
+    @JoinColumn(name = "room_id")
+    private Room room;
+
+    @Version
+    @JsonIgnore
+    private Long version;
+
+    public RecurringBooking(String organizer, LocalDateTime startDate, LocalDateTime endDate, Room room, RecurrenceFrequency frequency, int interval, int occurrences) {
+        this.organizer = organizer;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.room = room;
+        this.frequency = frequency;
+        this.interval = interval;
+        this.occurrences = occurrences;
+        this.lastEndDate = this.occurrenceStart(occurrences - 1).plus(this.duration());
+    }
+
+    /**
+     * @param startDate Start of the first occurrence.
+     * @param frequency How often the booking repeats.
+     * @param interval Number of days or weeks between occurrences.
+     * @param untilDate Last day an occurrence can start.
+     * @return The number of occurrences that start until {@code untilDate}
+     * (<i>0 if it's before {@code startDate}</i>).
+     */
+    public static long countOccurrencesUntil(LocalDateTime startDate, RecurrenceFrequency frequency, int interval, LocalDate untilDate) {
+        long days = ChronoUnit.DAYS.between(startDate.toLocalDate(), untilDate);
+        return days < 0 ? 0 : days / frequency.period(interval).toDays() + 1;
+    }
+
+    /**
+     * @return The time between the start of two consecutive occurrences.
+     */
+    @JsonIgnore
+    public Duration getPeriod() {
+        return this.frequency.period(this.interval);
+    }
+
+    /**
+     * @return The duration of each occurrence.
+     */
+    public Duration duration() {
+        return Duration.between(this.startDate, this.endDate);
+    }
+
+    /**
+     * @param k Index of the occurrence, starting from 0.
+     * @return The start of the occurrence.
+     */
+    public LocalDateTime occurrenceStart(int k) {
+        return this.startDate.plus(this.getPeriod().multipliedBy(k));
+    }
+
+    /**
+     * Returns the occurrence as a booking which isn't stored (<i>it has no id,
+     * but references this recurring booking</i>).
+     *
+     * @param k Index of the occurrence, starting from 0.
+     * @return The occurrence.
+     */
+    public Booking occurrence(int k) {
+        LocalDateTime start = this.occurrenceStart(k);
+        Booking booking = new Booking(this.organizer, start, start.plus(this.duration()), this.room);
+        booking.setRecurringBookingId(this.id);
+        return booking;
+    }
+
+    /**
+     * Returns the interval of the occurrence, identified by a negative id
+     * (<i>see {@link #occurrenceId}</i>) so it can be indexed along with the
+     * stored bookings.
+     *
+     * @param k Index of the occurrence, starting from 0.
+     * @return The interval of the occurrence.
+     */
+    public BookingInterval occurrenceInterval(int k) {
+        LocalDateTime start = this.occurrenceStart(k);
+        return new BookingInterval(this.occurrenceId(k), this.room.getId(), start, start.plus(this.duration()));
+    }
+
+    /**
+     * @param k Index of the occurrence, starting from 0.
+     * @return The id used for the interval of the occurrence, which is
+     * negative and lower than {@code -MAX_OCCURRENCES}, so it doesn't clash
+     * with stored bookings.
+     */
+    public long occurrenceId(int k) {
+        return -(this.id * MAX_OCCURRENCES + k + 1);
+    }
+
+    /**
+     * @param date Date the occurrence has to end at or after.
+     * @return The index of the first occurrence that ends at or after
+     * {@code date}, {@link #occurrences} if there is none.
+     */
+    private int firstEndingFrom(LocalDateTime date) {
+        long periodSeconds = this.getPeriod().toSeconds();
+        // Occurrence k ends at or after the date if start + k * period + duration >= date.
+        long seconds = Duration.between(this.startDate, date).minus(this.duration()).toSeconds();
+        return (int) Math.max(0, Math.min(this.occurrences, -Math.floorDiv(-seconds, periodSeconds)));
+    }
+
+    /**
+     * @param date Date the occurrence has to start at or after.
+     * @return The index of the first occurrence that starts at or after
+     * {@code date}, {@link #occurrences} if there is none.
+     */
+    private int firstStartingFrom(LocalDateTime date) {
+        long periodSeconds = this.getPeriod().toSeconds();
+        // Occurrence k starts at or after the date if start + k * period >= date.
+        long seconds = Duration.between(this.startDate, date).toSeconds();
+        int first = (int) Math.max(0, Math.min(this.occurrences, -Math.floorDiv(-seconds, periodSeconds)));
+        // The fractions of a second of the date are ignored above.
+        return first < this.occurrences && this.occurrenceStart(first).isBefore(date) ? first + 1 : first;
+    }
+
+    /**
+     * @param date Date the occurrence has to start at or before.
+     * @return The index of the last occurrence that starts at or before
+     * {@code date}, -1 if there is none.
+     */
+    private int lastStartingUntil(LocalDateTime date) {
+        long periodSeconds = this.getPeriod().toSeconds();
+        // Occurrence k starts at or before the date if start + k * period <= date.
+        long seconds = Duration.between(this.startDate, date).toSeconds();
+        return (int) Math.min(this.occurrences - 1, Math.max(-1, Math.floorDiv(seconds, periodSeconds)));
+    }
+
+    /**
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @return The occurrences that take place between {@code startDate} and
+     * {@code endDate}, sorted by their start date.
+     */
+    public List<Booking> expand(LocalDateTime startDate, LocalDateTime endDate) {
+        List<Booking> occurrences = new ArrayList<>();
+        int last = this.lastStartingUntil(endDate);
+        for (int k = this.firstEndingFrom(startDate); k <= last; k++) {
+            occurrences.add(this.occurrence(k));
+        }
+        return occurrences;
+    }
+
+    /**
+     * @param startDate Earliest start of the occurrences.
+     * @param endDate Latest start of the occurrences.
+     * @return The indexes of the occurrences that start between
+     * {@code startDate} and {@code endDate}, sorted.
+     */
+    public IntStream occurrencesStartingBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return IntStream.rangeClosed(this.firstStartingFrom(startDate), this.lastStartingUntil(endDate));
+    }
+
+    /**
+     * @return All the occurrences, sorted by their start date.
+     */
+    public List<Booking> expand() {
+        return this.expand(this.startDate, this.lastEndDate);
+    }
+
+    /**
+     * Same as {@link #expand(LocalDateTime, LocalDateTime)}, but
+     * returning the intervals of the occurrences.
+     *
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @return The intervals of the occurrences.
+     */
+    public List<BookingInterval> expandIntervals(LocalDateTime startDate, LocalDateTime endDate) {
+        List<BookingInterval> intervals = new ArrayList<>();
+        int last = this.lastStartingUntil(endDate);
+        for (int k = this.firstEndingFrom(startDate); k <= last; k++) {
+            intervals.add(this.occurrenceInterval(k));
+        }
+        return intervals;
+    }
+
+    /**
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @return The first occurrence that has a conflict with the range of time,
+     * in constant time.
+     */
+    public Optional<Booking> findOverlapping(LocalDateTime startDate, LocalDateTime endDate) {
+        int first = this.firstEndingFrom(startDate);
+        return first <= this.lastStartingUntil(endDate)
+                ? Optional.of(this.occurrence(first))
+                : Optional.empty();
+    }
+
+    /**
+     * Looks for an occurrence of the given recurring booking that has a
+     * conflict with an occurrence of this one, walking the occurrences of
+     * both at once in a single pass.
+     *
+     * @param other Recurring booking to compare with.
+     * @return The first occurrence of {@code other} that has a conflict.
+     */
+    public Optional<Booking> findOverlapping(RecurringBooking other) {
+        int i = this.firstEndingFrom(other.startDate);
+        int lastI = this.lastStartingUntil(other.lastEndDate);
+        int j = other.firstEndingFrom(this.startDate);
+        int lastJ = other.lastStartingUntil(this.lastEndDate);
+
+        while (i <= lastI && j <= lastJ) {
+            LocalDateTime startI = this.occurrenceStart(i);
+            LocalDateTime endI = startI.plus(this.duration());
+            LocalDateTime startJ = other.occurrenceStart(j);
+            LocalDateTime endJ = startJ.plus(other.duration());
+            if (BookingUtils.isDateRangeInRange(startI, endI, startJ, endJ)) {
+                return Optional.of(other.occurrence(j));
+            }
+            // The occurrence that ends first can't overlap with later ones.
+            if (endI.isBefore(endJ)) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,158 @@
+package me.folgue.salas.bookings;
+
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The queries filter the recurring bookings by their first and last
+ * occurrence, the occurrences in the range of time are computed by
+ * {@link RecurringBooking}.
+ *
+ * @author folgue
+ */
+@Repository
+public interface RecurringBookingRepository extends JpaRepository<RecurringBooking, Long> {
+
+    public List<RecurringBooking> findByRoomId(Long roomId);
+
+    /**
+     * @param id Lowest id of the recurring bookings.
+     * @param limit Maximum number of recurring bookings to return.
+     * @return The recurring bookings from the given id, sorted by their id.
+     */
+    public List<RecurringBooking> findByIdGreaterThanEqualOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Returns the recurring bookings of the given room that take place
+     * between {@code startDate} and {@code endDate} (<i>some of their
+     * occurrences may not</i>).
+     *
+     * @param roomId Id of the room.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @return The recurring bookings.
+     */
+    @Query("""
+           SELECT r FROM RecurringBooking r
+           WHERE r.room.id = :roomId
+           AND r.startDate <= :endDate
+           AND r.lastEndDate >= :startDate
+           """)
+    public List<RecurringBooking> findOverlapping(
+            @Param("roomId") Long roomId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * Same as {@link #findOverlapping}, for any of the given rooms.
+     *
+     * @param roomIds Ids of the rooms.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @return The recurring bookings.
+     */
+    @Query("""
+           SELECT r FROM RecurringBooking r
+           WHERE r.room.id IN :roomIds
+           AND r.startDate <= :endDate
+           AND r.lastEndDate >= :startDate
+           """)
+    public List<RecurringBooking> findOverlappingInRooms(
+            @Param("roomIds") Collection<Long> roomIds,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * Same as {@link #findOverlapping}, for the recurring bookings of the
+     * given organizer in any room.
+     *
+     * @param organizer Organizer of the recurring bookings.
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @return The recurring bookings.
+     */
+    @Query("""
+           SELECT r FROM RecurringBooking r
+           WHERE r.organizer = :organizer
+           AND r.startDate <= :endDate
+           AND r.lastEndDate >= :startDate
+           """)
+    public List<RecurringBooking> findOverlappingOfOrganizer(
+            @Param("organizer") String organizer,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * Same as {@link #findOverlapping}, for every room.
+     *
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @return The recurring bookings.
+     */
+    @Query("""
+           SELECT r FROM RecurringBooking r
+           WHERE r.startDate <= :endDate
+           AND r.lastEndDate >= :startDate
+           """)
+    public List<RecurringBooking> findAllOverlapping(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * Same as {@link BookingRepository#streamAll}, for the recurring bookings
+     * with an occurrence that matches the given filters (<i>some of their
+     * occurrences may not</i>).
+     *
+     * @param roomId Id of the room of the recurring bookings, or {@code null}
+     * for all the rooms.
+     * @param startDate Start of the range of time, or {@code null}.
+     * @param endDate End of the range of time, or {@code null}.
+     * @return A stream of the recurring bookings, which has to be closed.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+           SELECT r FROM RecurringBooking r
+           JOIN FETCH r.room
+           WHERE (:roomId IS NULL OR r.room.id = :roomId)
+           AND (:startDate IS NULL OR r.lastEndDate >= :startDate)
+           AND (:endDate IS NULL OR r.startDate <= :endDate)
+           ORDER BY r.id
+           """)
+    public Stream<RecurringBooking> streamAll(
+            @Param("roomId") Long roomId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * Removes all the recurring bookings of the given room with a single
+     * statement, without loading them.
+     *
+     * @param roomId Id of the room.
+     * @return The number of recurring bookings removed.
+     */
+    @Modifying
+    @Query("""
+           DELETE FROM RecurringBooking r
+           WHERE r.room.id = :roomId
+           """)
+    public int deleteByRoomId(@Param("roomId") Long roomId);
+}
@@ -0,0 +1,17 @@
+package me.folgue.salas.bookings;
+
+import me.folgue.salas.rooms.RoomCalendarVersion;
+
+/**
+ * Bookings of a room, along with the version of the room and of its bookings
+ * they were read with (<i>see {@link BookingService#getCalendar}</i>).
+ *
+ * @param <T> Representation of the bookings.
+ * @param version Version of the calendar, or {@code null} if the room
+ * doesn't exist.
+ * @param bookings Bookings of the room, or {@code null} if they weren't read
+ * because the client already has them.
+ * @author folgue
+ */
+public record RoomCalendar<T>(RoomCalendarVersion version, T bookings) {
+}
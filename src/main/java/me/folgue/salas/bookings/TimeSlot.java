@@ -0,0 +1,21 @@
+package me.folgue.salas.bookings;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Range of time in which a room is free.
+ *
+ * @param startDate Start of the range of time.
+ * @param endDate End of the range of time.
+ * @author folgue
+ */
+public record TimeSlot(LocalDateTime startDate, LocalDateTime endDate) {
+
+    /**
+     * @return How long the range of time lasts.
+     */
+    public Duration duration() {
+        return Duration.between(this.startDate, this.endDate);
+    }
+}
@@ -0,0 +1,15 @@
+package me.folgue.salas.bookings.exceptions;
+
+/**
+ * Represents the scenario where a batch of bookings couldn't be created
+ * because the database detected a conflict with a booking created at the same
+ * time, after the conflicts of the batch had been checked.
+ *
+ * @author folgue
+ */
+public class BookingBatchConflictException extends BookingControllerException {
+
+    public BookingBatchConflictException() {
+        super("Una reserva creada a la vez hace conflicto con alguna de las reservas del lote, no se ha creado ninguna");
+    }
+}
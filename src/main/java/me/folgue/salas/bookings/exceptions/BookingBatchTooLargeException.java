@@ -0,0 +1,27 @@
+package me.folgue.salas.bookings.exceptions;
+
+/**
+ * Represents the scenario where a batch with more bookings than allowed has
+ * been attempted to be created.
+ *
+ * @author folgue
+ */
+public class BookingBatchTooLargeException extends BookingControllerException {
+
+    private final int size;
+    private final int maxSize;
+
+    public BookingBatchTooLargeException(int size, int maxSize) {
+        super(String.format("Se intentaron crear %d reservas a la vez, el maximo es %d", size, maxSize));
+        this.size = size;
+        this.maxSize = maxSize;
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+}
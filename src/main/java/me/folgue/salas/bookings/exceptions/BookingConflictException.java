@@ -31,6 +31,23 @@ public class BookingConflictException extends BookingControllerException {
         this.conflictedEndDate = conflictedEndDate;
     }
 
+    /**
+     * Used when the booking that caused the conflict isn't known (<i>such as
+     * when the conflict is detected by the database</i>).
+     *
+     * @param startDate Start of the booking attempted.
+     * @param endDate End of the booking attempted.
+     * @param roomId Id of the room.
+     */
+    public BookingConflictException(LocalDateTime startDate, LocalDateTime endDate, long roomId) {
+        super(String.format("Se intento hacer una reserva entre '%s' y '%s' que hace conflicto con otra reserva para la sala con ID '%d'", startDate, endDate, roomId));
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.roomId = roomId;
+        this.conflictedStartDate = null;
+        this.conflictedEndDate = null;
+    }
+
     public Long getRoomId() {
         return roomId;
     }
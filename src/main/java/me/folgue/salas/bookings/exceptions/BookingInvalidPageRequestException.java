@@ -0,0 +1,14 @@
+package me.folgue.salas.bookings.exceptions;
+
+/**
+ * Represents the scenario where a page of bookings has been requested with an
+ * invalid cursor or order.
+ *
+ * @author folgue
+ */
+public class BookingInvalidPageRequestException extends BookingControllerException {
+
+    public BookingInvalidPageRequestException(String msg) {
+        super(msg);
+    }
+}
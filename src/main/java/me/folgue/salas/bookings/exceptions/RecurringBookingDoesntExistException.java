@@ -0,0 +1,14 @@
+package me.folgue.salas.bookings.exceptions;
+
+/**
+ * Represents the scenario where a recurring booking that doesn't exist has
+ * been requested.
+ *
+ * @author folgue
+ */
+public class RecurringBookingDoesntExistException extends BookingControllerException {
+
+    public RecurringBookingDoesntExistException(long recurringBookingId) {
+        super(String.format("No existe ninguna reserva periodica con el ID %d", recurringBookingId));
+    }
+}
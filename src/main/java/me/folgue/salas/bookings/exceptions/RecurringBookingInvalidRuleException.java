@@ -0,0 +1,14 @@
+package me.folgue.salas.bookings.exceptions;
+
+/**
+ * Represents the scenario where a recurring booking has been requested with
+ * an invalid repetition (<i>such as no end, or too many occurrences</i>).
+ *
+ * @author folgue
+ */
+public class RecurringBookingInvalidRuleException extends BookingControllerException {
+
+    public RecurringBookingInvalidRuleException(String msg) {
+        super(msg);
+    }
+}
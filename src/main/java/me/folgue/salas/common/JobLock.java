@@ -0,0 +1,62 @@
+package me.folgue.salas.common;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps a job (<i>such as the archive of the bookings</i>) from running on
+ * several instances of the API at the same time, with a PostgreSQL advisory
+ * lock held until the current transaction ends.
+ * <br>
+ * <b>NOTE</b>: Its methods have to be called inside of a transaction. With
+ * any other database (<i>the in-memory one of the {@code embedded} profile,
+ * which is private to each instance</i>) there is nothing to coordinate and
+ * the lock is always acquired.
+ *
+ * @author folgue
+ */
+@Component
+public class JobLock {
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean postgres;
+
+    public JobLock(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Acquires the lock of the job if no other transaction holds it.
+     *
+     * @param job Name of the job.
+     * @return {@code true} if the lock was acquired, {@code false} if the job
+     * is running somewhere else.
+     */
+    public boolean tryLock(String job) {
+        if (!this.isPostgres()) {
+            return true;
+        }
+        return Boolean.TRUE.equals(this.jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(hashtext(?))", Boolean.class, job));
+    }
+
+    /**
+     * Acquires the lock of the job, waiting for the transaction that holds it
+     * to end.
+     *
+     * @param job Name of the job.
+     */
+    public void lock(String job) {
+        if (this.isPostgres()) {
+            this.jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(hashtext(?))::text", String.class, job);
+        }
+    }
+
+    private boolean isPostgres() {
+        if (this.postgres == null) {
+            this.postgres = this.jdbcTemplate.execute((ConnectionCallback<Boolean>) connection
+                    -> "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return this.postgres;
+    }
+}
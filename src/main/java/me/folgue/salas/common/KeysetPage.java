@@ -0,0 +1,54 @@
+package me.folgue.salas.common;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page of a list of elements sorted by a unique key, where the next page is
+ * requested with the cursor of the last element of the previous one (<i>keyset
+ * pagination</i>), so the database never has to skip rows.
+ *
+ * @param <T> Type of the elements of the page.
+ * @param items Elements of the page.
+ * @param nextCursor Cursor to request the next page with, or {@code null} if
+ * this is the last page.
+ * @author folgue
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+
+    /**
+     * Maximum number of elements that can be requested in a single page.
+     */
+    public static final int MAX_LIMIT = 1000;
+
+    /**
+     * Makes sure that the number of elements requested is between 1 and
+     * {@link #MAX_LIMIT}.
+     *
+     * @param limit Number of elements requested.
+     * @return The number of elements to return.
+     */
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * Creates a page from the elements returned by a query that requested
+     * {@code limit + 1} elements, the additional element is only used to know
+     * if there is a next page.
+     *
+     * @param <T> Type of the elements of the page.
+     * @param rows Elements returned by the query.
+     * @param limit Number of elements of the page.
+     * @param cursorOf Function that returns the cursor of an element.
+     * @return The page.
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, Function<T, String> cursorOf) {
+        if (rows.size() <= limit) {
+            return new KeysetPage<>(rows, null);
+        }
+
+        List<T> items = rows.subList(0, limit);
+        return new KeysetPage<>(items, cursorOf.apply(items.get(limit - 1)));
+    }
+}
@@ -0,0 +1,107 @@
+package me.folgue.salas.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Replaces the data source of {@code spring.datasource} with a
+ * {@link ReplicaRoutingDataSource} that sends the read-only transactions to
+ * the replicas of {@code salas.datasource.replicas.urls} (<i>separated by
+ * commas</i>), which use the credentials of the primary unless
+ * {@code salas.datasource.replicas.username} and
+ * {@code salas.datasource.replicas.password} are set.
+ * <br>
+ * Each database gets a pool of its own, named after it ({@code primary},
+ * {@code replica-0}, {@code replica-1}...), whose metrics are exposed in
+ * {@code hikaricp.connections}.
+ * <br>
+ * <b>NOTE</b>: It has to be enabled with
+ * {@code salas.datasource.replicas.enabled=true}. The replicas are expected
+ * to be kept up to date by the database (<i>such as with PostgreSQL streaming
+ * replication</i>), reads right after a write may not see it.
+ *
+ * @author folgue
+ */
+@Configuration
+@ConditionalOnProperty(name = "salas.datasource.replicas.enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            DataSourceProperties properties,
+            MeterRegistry registry,
+            @Value("${salas.datasource.replicas.urls}") List<String> urls,
+            @Value("${salas.datasource.replicas.username:${spring.datasource.username}}") String username,
+            @Value("${salas.datasource.replicas.password:${spring.datasource.password}}") String password,
+            @Value("${salas.datasource.replicas.connection-timeout:2s}") Duration connectionTimeout
+    ) {
+        List<String> replicaUrls = urls.stream().map(String::trim).filter(url -> !url.isEmpty()).toList();
+        if (replicaUrls.isEmpty()) {
+            throw new IllegalStateException("salas.datasource.replicas.urls has to list at least one replica while salas.datasource.replicas.enabled is true");
+        }
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url)
+                    .username(username)
+                    .password(password)
+                    .build();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setReadOnly(true);
+            // A replica that is down has to be skipped quickly.
+            replica.setConnectionTimeout(connectionTimeout.toMillis());
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            replicas.put(replica.getPoolName(), replica);
+        }
+
+        return new ReplicaRoutingDataSource(primary, replicas, (int) Math.max(1, connectionTimeout.toSeconds()), registry);
+    }
+
+    /**
+     * The connection is only opened once the first statement is run, when
+     * the transaction has already been marked as read-only, so the routing
+     * data source can choose the database.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * With {@code spring.jpa.open-in-view} the entity manager of a request
+     * keeps the connection of its first transaction until the request ends,
+     * so a write after a read-only transaction would be sent to the replica.
+     * Releasing the connection after each transaction makes each transaction
+     * choose its database.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
@@ -0,0 +1,201 @@
+package me.folgue.salas.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import javax.sql.DataSource;
+import lombok.extern.java.Log;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends the connections of read-only transactions
+ * (<i>{@code @Transactional(readOnly = true)}</i>) to the replicas, taking
+ * turns among the healthy ones, and every other connection to the primary.
+ * <br>
+ * The health of the replicas is checked every
+ * {@code salas.datasource.replicas.health-check-interval}, and a replica is
+ * also considered down as soon as a connection to it can't be opened. If
+ * there is no healthy replica, the read-only transactions use the primary.
+ * <br>
+ * The connections opened for each target are counted in
+ * {@code salas.datasource.connections}, the read-only transactions sent to
+ * the primary in {@code salas.datasource.replicas.fallbacks}, and the health
+ * of each replica is exposed in {@code salas.datasource.replicas.healthy}.
+ * <br>
+ * <b>NOTE</b>: The transaction has to be known to be read-only when the
+ * connection is requested, so it has to be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * (<i>see {@link ReplicaDataSourceConfiguration}</i>).
+ *
+ * @author folgue
+ */
+@Log
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final int healthCheckTimeoutSeconds;
+
+    private final Map<String, Counter> connections = new HashMap<>();
+    private final Counter unhealthyFallbacks;
+    private final Counter errorFallbacks;
+
+    /**
+     * @param primary Data source of the primary.
+     * @param replicas Data sources of the replicas, by their name.
+     * @param healthCheckTimeoutSeconds Seconds a replica has to answer the
+     * health check in.
+     * @param registry Registry of the metrics.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, int healthCheckTimeoutSeconds, MeterRegistry registry) {
+        this.primary = primary;
+        this.replicas = replicas.entrySet().stream()
+                .map(replica -> new Replica(replica.getKey(), replica.getValue()))
+                .toList();
+        this.healthCheckTimeoutSeconds = healthCheckTimeoutSeconds;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        this.setTargetDataSources(targets);
+        this.setDefaultTargetDataSource(primary);
+
+        for (Object target : targets.keySet()) {
+            this.connections.put((String) target, Counter.builder("salas.datasource.connections")
+                    .description("Connections opened, by the database they were opened to")
+                    .tag("target", (String) target)
+                    .register(registry));
+        }
+        for (Replica replica : this.replicas) {
+            Gauge.builder("salas.datasource.replicas.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .description("Whether the replica receives read-only transactions")
+                    .tag("target", replica.name)
+                    .register(registry);
+        }
+        this.unhealthyFallbacks = Counter.builder("salas.datasource.replicas.fallbacks")
+                .description("Read-only transactions sent to the primary")
+                .tag("reason", "no_healthy_replica")
+                .register(registry);
+        this.errorFallbacks = Counter.builder("salas.datasource.replicas.fallbacks")
+                .description("Read-only transactions sent to the primary")
+                .tag("reason", "connection_error")
+                .register(registry);
+    }
+
+    /**
+     * @return {@link #PRIMARY} unless the current transaction is read-only
+     * and there is a healthy replica, in which case, the name of the next
+     * healthy replica.
+     */
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        Replica replica = this.nextHealthyReplica();
+        if (replica == null) {
+            this.unhealthyFallbacks.increment();
+            return PRIMARY;
+        }
+        return replica.name;
+    }
+
+    /**
+     * Opens a connection to the database chosen by
+     * {@link #determineCurrentLookupKey()}, falling back to the primary if the
+     * replica chosen can't be reached.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        String target = (String) this.determineCurrentLookupKey();
+        if (!PRIMARY.equals(target)) {
+            Replica replica = this.replicas.stream().filter(r -> r.name.equals(target)).findFirst().orElseThrow();
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                this.connections.get(target).increment();
+                return connection;
+            } catch (SQLException e) {
+                this.markDown(replica, e);
+                this.errorFallbacks.increment();
+            }
+        }
+        this.connections.get(PRIMARY).increment();
+        return this.primary.getConnection();
+    }
+
+    /**
+     * Opens a connection to the primary with the given credentials, as the
+     * replicas are only reached with the credentials they are configured
+     * with.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        this.connections.get(PRIMARY).increment();
+        return this.primary.getConnection(username, password);
+    }
+
+    /**
+     * Checks if each replica can be reached, so the replicas that recovered
+     * receive read-only transactions again.
+     */
+    @Scheduled(fixedDelayString = "${salas.datasource.replicas.health-check-interval:PT10S}")
+    public void checkReplicas() {
+        for (Replica replica : this.replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (!connection.isValid(this.healthCheckTimeoutSeconds)) {
+                    throw new SQLException("The connection isn't valid");
+                }
+                if (!replica.healthy) {
+                    replica.healthy = true;
+                    log.info(() -> String.format("Replica '%s' is healthy again.", replica.name));
+                }
+            } catch (SQLException e) {
+                this.markDown(replica, e);
+            }
+        }
+    }
+
+    private Replica nextHealthyReplica() {
+        if (this.replicas.isEmpty()) {
+            return null;
+        }
+        int start = Math.floorMod(this.nextReplica.getAndIncrement(), this.replicas.size());
+        for (int i = 0; i < this.replicas.size(); i++) {
+            Replica replica = this.replicas.get((start + i) % this.replicas.size());
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private void markDown(Replica replica, SQLException e) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            log.log(Level.WARNING, e, () -> String.format("Replica '%s' is down, read-only transactions will use other replicas or the primary.", replica.name));
+        }
+    }
+
+    private static class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
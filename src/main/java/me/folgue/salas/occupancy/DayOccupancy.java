@@ -0,0 +1,42 @@
+package me.folgue.salas.occupancy;
+
+import java.time.LocalDate;
+
+/**
+ * Occupancy of a room during a day.
+ *
+ * @param roomId Id of the room.
+ * @param date Day of the occupancy.
+ * @param slotMinutes Duration of each slot.
+ * @param occupiedSlots Number of slots during which the room is booked.
+ * @param utilization Fraction of the slots of the day during which the room is
+ * booked (<i>from 0 to 1</i>).
+ * @param slots One character per slot of the day, {@code 1} if the room is
+ * booked during the slot, {@code 0} otherwise.
+ * @author folgue
+ */
+public record DayOccupancy(long roomId, LocalDate date, int slotMinutes, int occupiedSlots, double utilization, String slots) {
+
+    /**
+     * Creates the occupancy from the bitmap of the day.
+     *
+     * @param roomId Id of the room.
+     * @param date Day of the occupancy.
+     * @param slotMinutes Duration of each slot.
+     * @param slotsPerDay Number of slots of the day.
+     * @param bitmap One bit per slot of the day.
+     * @return The occupancy.
+     */
+    public static DayOccupancy of(long roomId, LocalDate date, int slotMinutes, int slotsPerDay, long[] bitmap) {
+        int occupiedSlots = 0;
+        for (long word : bitmap) {
+            occupiedSlots += Long.bitCount(word);
+        }
+
+        StringBuilder slots = new StringBuilder(slotsPerDay);
+        for (int slot = 0; slot < slotsPerDay; slot++) {
+            slots.append((bitmap[slot >>> 6] >>> (slot & 63) & 1L) == 1L ? '1' : '0');
+        }
+        return new DayOccupancy(roomId, date, slotMinutes, occupiedSlots, (double) occupiedSlots / slotsPerDay, slots.toString());
+    }
+}
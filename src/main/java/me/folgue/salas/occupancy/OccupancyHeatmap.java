@@ -0,0 +1,16 @@
+package me.folgue.salas.occupancy;
+
+import java.time.LocalDate;
+
+/**
+ * Number of rooms booked during each slot of a day.
+ *
+ * @param date Day of the heatmap.
+ * @param slotMinutes Duration of each slot.
+ * @param rooms Total number of rooms.
+ * @param occupiedRooms Number of rooms booked during each slot of the day,
+ * starting at 00:00.
+ * @author folgue
+ */
+public record OccupancyHeatmap(LocalDate date, int slotMinutes, int rooms, int[] occupiedRooms) {
+}
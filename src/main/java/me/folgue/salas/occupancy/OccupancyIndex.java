@@ -0,0 +1,431 @@
+package me.folgue.salas.occupancy;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.java.Log;
+import me.folgue.salas.bookings.BookingInterval;
+import me.folgue.salas.bookings.BookingRepository;
+import me.folgue.salas.bookings.RecurringBooking;
+import me.folgue.salas.bookings.RecurringBookingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory occupancy of every room, split in slots of
+ * {@code salas.occupancy.slot-minutes} minutes, for the days between
+ * {@code salas.occupancy.past-days} days ago and
+ * {@code salas.occupancy.future-days} days from today.
+ * <br>
+ * Each room with bookings in that horizon has a bitmap with one bit per slot
+ * of every day (<i>set if any booking takes place during the slot</i>), so
+ * the memory used only depends on the number of rooms booked, the horizon and
+ * the slot size: {@code rooms * horizonDays * ceil(slotsPerDay / 64) * 8}
+ * bytes (<i>about 10MB for 5000 rooms, 15 minute slots and 121 days</i>),
+ * plus the intervals of the bookings in the horizon. The occurrences of the
+ * recurring bookings are indexed as bookings, with the ids given by
+ * {@link RecurringBooking#occurrenceId}.
+ * <br>
+ * The bitmaps are a ring of days, when the date changes the days that leave
+ * the horizon are cleared and reused for the days that enter it, which are
+ * loaded from the database.
+ * <br>
+ * <b>NOTE</b>: As {@link me.folgue.salas.bookings.BookingIntervalIndex}, it's
+ * built from the database when the application starts and kept up to date by
+ * {@link me.folgue.salas.bookings.BookingService}, so changes made by other
+ * instances of the API won't be reflected on it until the next time it's
+ * rebuilt. That's why it has to be enabled explicitly with
+ * {@code salas.occupancy.enabled=true}, only with a single instance.
+ *
+ * @author folgue
+ */
+@Component
+@ConditionalOnProperty(name = "salas.occupancy.enabled", havingValue = "true")
+@Log
+public class OccupancyIndex {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final BookingRepository bookingRepository;
+    private final RecurringBookingRepository recurringBookingRepository;
+    private final int slotMinutes;
+    private final int slotsPerDay;
+    private final int wordsPerDay;
+    private final int pastDays;
+    private final int horizonDays;
+
+    private final Map<Long, RoomOccupancy> rooms = new HashMap<>();
+    private final Map<Long, BookingInterval> bookings = new HashMap<>();
+    private LocalDate firstDay;
+
+    public OccupancyIndex(
+            BookingRepository bookingRepository,
+            RecurringBookingRepository recurringBookingRepository,
+            @Value("${salas.occupancy.slot-minutes:15}") int slotMinutes,
+            @Value("${salas.occupancy.past-days:30}") int pastDays,
+            @Value("${salas.occupancy.future-days:90}") int futureDays
+    ) {
+        if (slotMinutes <= 0 || MINUTES_PER_DAY % slotMinutes != 0) {
+            throw new IllegalArgumentException(String.format("The slots of %d minutes don't divide a day.", slotMinutes));
+        }
+        if (pastDays < 0 || futureDays < 0) {
+            throw new IllegalArgumentException("The days of the horizon can't be negative.");
+        }
+
+        this.bookingRepository = bookingRepository;
+        this.recurringBookingRepository = recurringBookingRepository;
+        this.slotMinutes = slotMinutes;
+        this.slotsPerDay = MINUTES_PER_DAY / slotMinutes;
+        this.wordsPerDay = (this.slotsPerDay + Long.SIZE - 1) / Long.SIZE;
+        this.pastDays = pastDays;
+        this.horizonDays = pastDays + 1 + futureDays;
+    }
+
+    /**
+     * Creates an index that only contains the given intervals, which isn't
+     * backed by the database (<i>it can't be rebuilt nor rolled</i>).
+     *
+     * @param intervals Intervals of the bookings to index.
+     * @param today Day the horizon is relative to.
+     * @param slotMinutes Duration of each slot.
+     * @param pastDays Days before {@code today} in the horizon.
+     * @param futureDays Days after {@code today} in the horizon.
+     * @return The index.
+     */
+    public static OccupancyIndex of(Collection<BookingInterval> intervals, LocalDate today, int slotMinutes, int pastDays, int futureDays) {
+        OccupancyIndex index = new OccupancyIndex(null, null, slotMinutes, pastDays, futureDays);
+        index.firstDay = today.minusDays(pastDays);
+        intervals.forEach(index::put);
+        return index;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.rebuild(LocalDate.now());
+    }
+
+    /**
+     * Moves the horizon to the current day.
+     */
+    @Scheduled(cron = "${salas.occupancy.roll-cron:0 0 0 * * *}")
+    public void roll() {
+        this.roll(LocalDate.now());
+    }
+
+    /**
+     * Discards the contents of the index and loads the bookings of the horizon
+     * relative to {@code today} from the database.
+     *
+     * @param today Day the horizon is relative to.
+     */
+    public synchronized void rebuild(LocalDate today) {
+        this.rooms.clear();
+        this.bookings.clear();
+        this.firstDay = today.minusDays(this.pastDays);
+
+        List<BookingInterval> intervals = this.findIntervals(this.horizonStart(), this.horizonEnd());
+        intervals.forEach(this::put);
+        log.info(String.format("Occupancy index built from %s to %s with %d bookings for %d rooms.",
+                this.firstDay, this.getLastDay(), this.bookings.size(), this.rooms.size()));
+    }
+
+    /**
+     * Moves the horizon so it's relative to {@code today}, only loading the
+     * bookings of the days that enter it.
+     *
+     * @param today Day the horizon is relative to.
+     */
+    public synchronized void roll(LocalDate today) {
+        LocalDate newFirstDay = today.minusDays(this.pastDays);
+        long shift = ChronoUnit.DAYS.between(this.firstDay, newFirstDay);
+        if (shift <= 0) {
+            return;
+        }
+        if (shift >= this.horizonDays) {
+            this.rebuild(today);
+            return;
+        }
+
+        LocalDateTime newDaysStart = this.horizonEnd();
+        // The days that leave the horizon are reused for the ones that enter it.
+        for (LocalDate day = this.firstDay; day.isBefore(newFirstDay); day = day.plusDays(1)) {
+            int offset = this.offset(day);
+            for (RoomOccupancy room : this.rooms.values()) {
+                Arrays.fill(room.slots, offset, offset + this.wordsPerDay, 0L);
+            }
+        }
+        this.firstDay = newFirstDay;
+
+        Iterator<BookingInterval> iterator = this.bookings.values().iterator();
+        while (iterator.hasNext()) {
+            BookingInterval interval = iterator.next();
+            if (!interval.endDate().isAfter(this.horizonStart())) {
+                iterator.remove();
+                this.rooms.get(interval.roomId()).bookings.remove(interval.bookingId());
+            }
+        }
+        this.rooms.values().removeIf(room -> room.bookings.isEmpty());
+
+        // Includes the bookings already indexed that continue in the new days.
+        this.findIntervals(newDaysStart, this.horizonEnd()).forEach(this::put);
+        log.info(String.format("Occupancy index moved to %s - %s.", this.firstDay, this.getLastDay()));
+    }
+
+    /**
+     * Adds the booking to the index, replacing the previous interval of the
+     * same booking (<i>if any</i>). Bookings outside the horizon are ignored.
+     *
+     * @param interval Interval of the booking.
+     */
+    public synchronized void put(BookingInterval interval) {
+        this.remove(interval.bookingId());
+        if (!interval.endDate().isAfter(this.horizonStart()) || !interval.startDate().isBefore(this.horizonEnd())) {
+            return;
+        }
+
+        this.bookings.put(interval.bookingId(), interval);
+        RoomOccupancy room = this.rooms.computeIfAbsent(interval.roomId(), id -> new RoomOccupancy(new long[this.horizonDays * this.wordsPerDay]));
+        room.bookings.put(interval.bookingId(), interval);
+        this.mark(room, interval);
+    }
+
+    /**
+     * Removes the booking with the given id from the index, if it isn't
+     * indexed this function won't do anything.
+     *
+     * @param bookingId Id of the booking to remove.
+     */
+    public synchronized void remove(long bookingId) {
+        BookingInterval previous = this.bookings.remove(bookingId);
+        if (previous == null) {
+            return;
+        }
+
+        RoomOccupancy room = this.rooms.get(previous.roomId());
+        room.bookings.remove(bookingId);
+        if (room.bookings.isEmpty()) {
+            this.rooms.remove(previous.roomId());
+            return;
+        }
+
+        // Other bookings can share a slot with the removed one, so the days of
+        // the booking are marked again from the remaining bookings.
+        LocalDate lastDay = this.lastDayOf(previous);
+        for (LocalDate day = this.firstDayOf(previous); !day.isAfter(lastDay); day = day.plusDays(1)) {
+            int offset = this.offset(day);
+            Arrays.fill(room.slots, offset, offset + this.wordsPerDay, 0L);
+            for (BookingInterval interval : room.bookings.values()) {
+                this.markDay(room, interval, day);
+            }
+        }
+    }
+
+    /**
+     * Adds the occurrences of the recurring booking that take place in the
+     * horizon to the index.
+     *
+     * @param recurringBooking Recurring booking saved.
+     */
+    public synchronized void putRecurring(RecurringBooking recurringBooking) {
+        recurringBooking.expandIntervals(this.horizonStart(), this.horizonEnd()).forEach(this::put);
+    }
+
+    /**
+     * Removes the occurrences of the recurring booking from the index.
+     *
+     * @param recurringBooking Recurring booking removed.
+     */
+    public synchronized void removeRecurring(RecurringBooking recurringBooking) {
+        recurringBooking.expandIntervals(this.horizonStart(), this.horizonEnd())
+                .forEach(interval -> this.remove(interval.bookingId()));
+    }
+
+    /**
+     * Removes all the bookings of the given room from the index.
+     *
+     * @param roomId Id of the room.
+     */
+    public synchronized void removeRoom(long roomId) {
+        RoomOccupancy room = this.rooms.remove(roomId);
+        if (room != null) {
+            this.bookings.keySet().removeAll(room.bookings.keySet());
+        }
+    }
+
+    /**
+     * @param day Day to check.
+     * @return {@code true} if the day is in the horizon of the index.
+     */
+    public synchronized boolean isInHorizon(LocalDate day) {
+        return !day.isBefore(this.firstDay) && !day.isAfter(this.getLastDay());
+    }
+
+    /**
+     * Returns the occupancy of the room during the given day.
+     *
+     * @param roomId Id of the room.
+     * @param day Day of the occupancy, which has to be in the horizon.
+     * @return The occupancy of the room.
+     */
+    public synchronized DayOccupancy getOccupancy(long roomId, LocalDate day) {
+        this.checkHorizon(day);
+        long[] slots = new long[this.wordsPerDay];
+        RoomOccupancy room = this.rooms.get(roomId);
+        if (room != null) {
+            System.arraycopy(room.slots, this.offset(day), slots, 0, this.wordsPerDay);
+        }
+        return DayOccupancy.of(roomId, day, this.slotMinutes, this.slotsPerDay, slots);
+    }
+
+    /**
+     * Returns the number of rooms occupied during each slot of the given day.
+     *
+     * @param day Day of the heatmap, which has to be in the horizon.
+     * @param rooms Total number of rooms.
+     * @return The heatmap of the day.
+     */
+    public synchronized OccupancyHeatmap getHeatmap(LocalDate day, int rooms) {
+        this.checkHorizon(day);
+        int[] occupiedRooms = new int[this.slotsPerDay];
+        int offset = this.offset(day);
+        for (RoomOccupancy room : this.rooms.values()) {
+            for (int word = 0; word < this.wordsPerDay; word++) {
+                // Only visits the slots that are set.
+                for (long bits = room.slots[offset + word]; bits != 0; bits &= bits - 1) {
+                    occupiedRooms[word * Long.SIZE + Long.numberOfTrailingZeros(bits)]++;
+                }
+            }
+        }
+        return new OccupancyHeatmap(day, this.slotMinutes, rooms, occupiedRooms);
+    }
+
+    public synchronized LocalDate getFirstDay() {
+        return this.firstDay;
+    }
+
+    public synchronized LocalDate getLastDay() {
+        return this.firstDay.plusDays(this.horizonDays - 1);
+    }
+
+    /**
+     * @return The intervals of the bookings and of the occurrences of the
+     * recurring bookings that take place between {@code startDate} and
+     * {@code endDate}.
+     */
+    private List<BookingInterval> findIntervals(LocalDateTime startDate, LocalDateTime endDate) {
+        List<BookingInterval> intervals = new ArrayList<>(this.bookingRepository.findAllIntervalsOverlapping(startDate, endDate));
+        for (RecurringBooking recurringBooking : this.recurringBookingRepository.findAllOverlapping(startDate, endDate)) {
+            intervals.addAll(recurringBooking.expandIntervals(startDate, endDate));
+        }
+        return intervals;
+    }
+
+    private LocalDateTime horizonStart() {
+        return this.firstDay.atStartOfDay();
+    }
+
+    /**
+     * @return The first instant after the horizon.
+     */
+    private LocalDateTime horizonEnd() {
+        return this.getLastDay().plusDays(1).atStartOfDay();
+    }
+
+    private void checkHorizon(LocalDate day) {
+        if (!this.isInHorizon(day)) {
+            throw new IllegalArgumentException(String.format("The day %s is out of the horizon of the index.", day));
+        }
+    }
+
+    /**
+     * @param day Day in the horizon.
+     * @return Position of the first word of the day in the bitmaps.
+     */
+    private int offset(LocalDate day) {
+        return Math.floorMod(day.toEpochDay(), this.horizonDays) * this.wordsPerDay;
+    }
+
+    private LocalDate firstDayOf(BookingInterval interval) {
+        LocalDate day = interval.startDate().toLocalDate();
+        return day.isBefore(this.firstDay) ? this.firstDay : day;
+    }
+
+    private LocalDate lastDayOf(BookingInterval interval) {
+        LocalDate day = interval.endDate().toLocalDate();
+        return day.isAfter(this.getLastDay()) ? this.getLastDay() : day;
+    }
+
+    private void mark(RoomOccupancy room, BookingInterval interval) {
+        LocalDate lastDay = this.lastDayOf(interval);
+        for (LocalDate day = this.firstDayOf(interval); !day.isAfter(lastDay); day = day.plusDays(1)) {
+            this.markDay(room, interval, day);
+        }
+    }
+
+    /**
+     * Sets the slots of the day during which the booking takes place, from
+     * the slot of its start to the slot before its end (<i>a booking from
+     * 10:00 to 11:00 takes the slots of 10:00 to 10:45 with slots of 15
+     * minutes</i>).
+     */
+    private void markDay(RoomOccupancy room, BookingInterval interval, LocalDate day) {
+        LocalDateTime dayStart = day.atStartOfDay();
+        LocalDateTime dayEnd = dayStart.plusDays(1);
+        LocalDateTime from = interval.startDate().isBefore(dayStart) ? dayStart : interval.startDate();
+        LocalDateTime to = interval.endDate().isAfter(dayEnd) ? dayEnd : interval.endDate();
+        if (!from.isBefore(to)) {
+            return;
+        }
+
+        int fromSlot = (int) Duration.between(dayStart, from).toMinutes() / this.slotMinutes;
+        int toSlot = ((int) Duration.between(dayStart, to).toMinutes() + this.slotMinutes - 1) / this.slotMinutes;
+        setRange(room.slots, this.offset(day), fromSlot, toSlot);
+    }
+
+    /**
+     * Sets the bits from {@code from} (<i>inclusive</i>) to {@code to}
+     * (<i>exclusive</i>) of the day starting at {@code offset}.
+     */
+    private static void setRange(long[] words, int offset, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        for (int word = firstWord; word <= lastWord; word++) {
+            long mask = -1L;
+            if (word == firstWord) {
+                mask &= -1L << (from & 63);
+            }
+            if (word == lastWord) {
+                mask &= -1L >>> (63 - ((to - 1) & 63));
+            }
+            words[offset + word] |= mask;
+        }
+    }
+
+    /**
+     * Occupancy of a single room, along with the bookings it was built from.
+     */
+    private static class RoomOccupancy {
+
+        private final long[] slots;
+        private final Map<Long, BookingInterval> bookings = new HashMap<>();
+
+        RoomOccupancy(long[] slots) {
+            this.slots = slots;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package me.folgue.salas.occupancy;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import me.folgue.salas.bookings.exceptions.BookingInvalidDatesException;
+import me.folgue.salas.occupancy.exceptions.OccupancyOutOfHorizonException;
+import me.folgue.salas.rooms.Room;
+import me.folgue.salas.rooms.RoomService;
+import me.folgue.salas.rooms.exceptions.RoomDoesntExistException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Occupancy of the rooms, answered from the {@link OccupancyIndex} without
+ * looking up the bookings.
+ *
+ * @author folgue
+ */
+@RestController
+@RequestMapping("/ocupacion/")
+@ConditionalOnProperty(name = "salas.occupancy.enabled", havingValue = "true")
+public class OccupancyRestController {
+
+    private final OccupancyIndex occupancyIndex;
+    private final RoomService roomService;
+
+    public OccupancyRestController(OccupancyIndex occupancyIndex, RoomService roomService) {
+        this.occupancyIndex = occupancyIndex;
+        this.roomService = roomService;
+    }
+
+    /**
+     * @param date Day of the occupancy.
+     * @return The occupancy of every room during the day.
+     * @throws OccupancyOutOfHorizonException If the day isn't in the horizon of
+     * the index.
+     */
+    @GetMapping("/")
+    public List<DayOccupancy> getOccupancy(@RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate date) throws OccupancyOutOfHorizonException {
+        this.checkHorizon(date);
+        return this.roomService.getAllRooms().stream()
+                .map(room -> this.occupancyIndex.getOccupancy(room.getId(), date))
+                .toList();
+    }
+
+    /**
+     * @param roomId Id of the room.
+     * @param startDate First day of the occupancy.
+     * @param endDate Last day of the occupancy.
+     * @return The occupancy of the room during each day between
+     * {@code startDate} and {@code endDate} (<i>both included</i>).
+     * @throws RoomDoesntExistException If the room doesn't exist.
+     * @throws BookingInvalidDatesException If {@code endDate} is before
+     * {@code startDate}.
+     * @throws OccupancyOutOfHorizonException If any of the days isn't in the
+     * horizon of the index.
+     */
+    @GetMapping("/sala/{roomId}")
+    public List<DayOccupancy> getRoomOccupancy(
+            @PathVariable long roomId,
+            @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate startDate,
+            @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate endDate
+    ) throws RoomDoesntExistException, BookingInvalidDatesException, OccupancyOutOfHorizonException {
+        Room room = this.roomService.findRoomById(roomId).orElseThrow(() -> new RoomDoesntExistException(roomId));
+        if (endDate.isBefore(startDate)) {
+            throw new BookingInvalidDatesException(startDate.atStartOfDay(), endDate.atStartOfDay());
+        }
+        this.checkHorizon(startDate);
+        this.checkHorizon(endDate);
+
+        List<DayOccupancy> days = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            days.add(this.occupancyIndex.getOccupancy(room.getId(), date));
+        }
+        return days;
+    }
+
+    /**
+     * @param date Day of the heatmap.
+     * @return The number of rooms booked during each slot of the day.
+     * @throws OccupancyOutOfHorizonException If the day isn't in the horizon of
+     * the index.
+     */
+    @GetMapping("/mapa")
+    public OccupancyHeatmap getHeatmap(@RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate date) throws OccupancyOutOfHorizonException {
+        this.checkHorizon(date);
+        return this.occupancyIndex.getHeatmap(date, this.roomService.getAllRooms().size());
+    }
+
+    private void checkHorizon(LocalDate date) throws OccupancyOutOfHorizonException {
+        if (!this.occupancyIndex.isInHorizon(date)) {
+            throw new OccupancyOutOfHorizonException(date, this.occupancyIndex.getFirstDay(), this.occupancyIndex.getLastDay());
+        }
+    }
+
+    @ExceptionHandler(BookingInvalidDatesException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidDates(BookingInvalidDatesException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(OccupancyOutOfHorizonException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleOutOfHorizon(OccupancyOutOfHorizonException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(RoomDoesntExistException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public String handleRoomDoesntExist(RoomDoesntExistException e) {
+        return e.getMessage();
+    }
+}
@@ -0,0 +1,12 @@
+package me.folgue.salas.occupancy.exceptions;
+
+/**
+ *
+ * @author folgue
+ */
+public abstract class OccupancyControllerException extends Exception {
+
+    public OccupancyControllerException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,16 @@
+package me.folgue.salas.occupancy.exceptions;
+
+import java.time.LocalDate;
+
+/**
+ * Represents the scenario where the occupancy of a day that isn't kept in
+ * memory has been requested.
+ *
+ * @author folgue
+ */
+public class OccupancyOutOfHorizonException extends OccupancyControllerException {
+
+    public OccupancyOutOfHorizonException(LocalDate date, LocalDate firstDay, LocalDate lastDay) {
+        super(String.format("Solo se puede consultar la ocupacion entre el '%s' y el '%s', no del '%s'", firstDay, lastDay, date));
+    }
+}
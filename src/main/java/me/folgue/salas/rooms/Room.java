@@ -2,26 +2,44 @@ package me.folgue.salas.rooms;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.annotation.Nonnull;
-import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.util.Set;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import me.folgue.salas.bookings.Booking;
+import org.hibernate.annotations.BatchSize;
 
 @Entity
+@Table(indexes = {
+    // Back the filters of RoomRepository.findAvailable.
+    @Index(name = "idx_room_capacity", columnList = "capacity"),
+    @Index(name = "idx_room_location", columnList = "location"),
+    // Backs RoomRepository.findByName.
+    @Index(name = "idx_room_name", columnList = "name")
+})
+// Rooms referenced by many bookings are loaded in batches instead of one by one.
+@BatchSize(size = 50)
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
 public class Room {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "room_seq")
+    @SequenceGenerator(name = "room_seq", sequenceName = "room_seq", allocationSize = 50)
     private Long id;
 
     @Nonnull
@@ -42,19 +60,45 @@ public class Room {
      */
     private String location;
 
-    @OneToMany(cascade = CascadeType.ALL)
+    /**
+     * Incremented every time the room is updated.
+     */
+    @Version
+    @JsonIgnore
+    private Long version;
+
+    /**
+     * Incremented every time a booking of the room is created, updated or
+     * removed, with {@link RoomRepository#incrementCalendarVersions}, never
+     * written with the room.
+     *
+     * @see me.folgue.salas.bookings.BookingService
+     */
+    @Column(name = "calendar_version", nullable = false, updatable = false)
+    @JsonIgnore
+    private long calendarVersion;
+
+    /**
+     * Bookings of the room, mapped by {@link Booking#getRoom()} (<i>the
+     * {@code room_id} column of the booking table</i>), only loaded when
+     * accessed.
+     */
+    @OneToMany(mappedBy = "room", fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Set<Booking> bookings;
 
     /**
-     * Creates an instance of a {@link Sala} with its ID set to 0.
+     * Creates an instance of a {@link Room} without an ID, which gets generated
+     * when it's saved.
      *
      * @param name Name of the room.
      * @param capacity Number of people that the room can hold during a meeting.
      * @param location The location of the room.
      */
     public Room(String name, int capacity, String location) {
-        this.id = 0L;
         this.name = name;
         this.capacity = capacity;
         this.location = location;
@@ -0,0 +1,23 @@
+package me.folgue.salas.rooms;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Statistics of one of the caches of {@link RoomService}, used to size them.
+ *
+ * @param name Name of the cache.
+ * @param size Approximate number of entries in the cache.
+ * @param hits Number of lookups that found the entry in the cache.
+ * @param misses Number of lookups that had to go to the database.
+ * @param evictions Number of entries removed due to the size or time limits.
+ * @param hitRate Ratio of lookups that found the entry in the cache.
+ * @author folgue
+ */
+public record RoomCacheStats(String name, long size, long hits, long misses, long evictions, double hitRate) {
+
+    public static RoomCacheStats of(String name, Cache<Object, Object> cache) {
+        CacheStats stats = cache.stats();
+        return new RoomCacheStats(name, cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate());
+    }
+}
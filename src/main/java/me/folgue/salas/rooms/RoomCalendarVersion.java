@@ -0,0 +1,20 @@
+package me.folgue.salas.rooms;
+
+/**
+ * Version of a room and of its bookings.
+ *
+ * @param roomId Id of the room.
+ * @param version Version of the room.
+ * @param calendarVersion Version of the bookings of the room.
+ * @author folgue
+ */
+public record RoomCalendarVersion(long roomId, long version, long calendarVersion) {
+
+    /**
+     * @param view Representation of the bookings the ETag is for.
+     * @return The value of the strong ETag of the bookings of the room.
+     */
+    public String toETag(String view) {
+        return String.format("\"sala-%d-%d-%d-%s\"", this.roomId, this.version, this.calendarVersion, view);
+    }
+}
@@ -0,0 +1,22 @@
+package me.folgue.salas.rooms;
+
+/**
+ * Change made to a room, published once the change has been committed.
+ *
+ * @param type Type of the change.
+ * @param roomId Id of the room changed.
+ * @param name Name of the room (<i>as it was before being deleted</i>).
+ * @author folgue
+ */
+public record RoomChangeEvent(Type type, long roomId, String name) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public static RoomChangeEvent of(Type type, Room room) {
+        return new RoomChangeEvent(type, room.getId(), room.getName());
+    }
+}
@@ -0,0 +1,11 @@
+package me.folgue.salas.rooms;
+
+/**
+ * Summary of the removal of a {@link Room}.
+ *
+ * @param roomId Id of the room removed.
+ * @param deletedBookings Number of bookings of the room removed along with it.
+ * @author folgue
+ */
+public record RoomDeletionSummary(Long roomId, int deletedBookings) {
+}
@@ -0,0 +1,15 @@
+package me.folgue.salas.rooms;
+
+import java.util.List;
+
+/**
+ * The rooms, along with the version of the list they were read with
+ * (<i>see {@link RoomService#getAllRooms(java.util.function.Predicate)}</i>).
+ *
+ * @param version Version of the list of rooms.
+ * @param rooms The rooms, or {@code null} if they weren't read as the
+ * version was current.
+ * @author folgue
+ */
+public record RoomList(RoomListVersion version, List<Room> rooms) {
+}
@@ -0,0 +1,36 @@
+package me.folgue.salas.rooms;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Single row holding the version of the list of rooms, incremented with
+ * {@link RoomRepository#incrementListVersion()} in the transaction of every
+ * change to a room, as the calendar version of a room is with its bookings.
+ * <br>
+ * The row is inserted by the migrations (<i>and by {@code import.sql} when
+ * the schema is created from the entities</i>).
+ *
+ * @author folgue
+ */
+@Entity
+@Table(name = "room_list_counter")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class RoomListCounter {
+
+    @Id
+    private Integer id;
+
+    /**
+     * Only ever incremented, so a version is never repeated.
+     */
+    @Column(nullable = false)
+    private long version;
+}
@@ -0,0 +1,18 @@
+package me.folgue.salas.rooms;
+
+/**
+ * Version of the list of rooms, which is incremented whenever a room is
+ * created, updated or removed (<i>see {@link RoomListCounter}</i>).
+ *
+ * @param version Number of changes made to the rooms.
+ * @author folgue
+ */
+public record RoomListVersion(long version) {
+
+    /**
+     * @return The value of the strong ETag of the list.
+     */
+    public String toETag() {
+        return String.format("\"salas-%d\"", this.version);
+    }
+}
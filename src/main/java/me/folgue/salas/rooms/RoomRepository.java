@@ -1,11 +1,20 @@
 package me.folgue.salas.rooms;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  *
@@ -19,4 +28,139 @@ public interface RoomRepository extends JpaRepository<Room, Long> {
     @Override
     Optional<Room> findById(Long id);
 
+    /**
+     * Looks up the room locking its row until the current transaction ends,
+     * so the writes of the bookings of the room that lock it run one after
+     * another.
+     *
+     * @param id Id of the room.
+     * @return The room, or nothing if it doesn't exist.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Room r WHERE r.id = :id")
+    Optional<Room> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Same as {@link #findByIdForUpdate}, but for many rooms, locked in the
+     * order of their id so two writes of the same rooms can't wait for each
+     * other.
+     *
+     * @param ids Ids of the rooms.
+     * @return The rooms that exist, sorted by their id.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Room r WHERE r.id IN :ids ORDER BY r.id")
+    List<Room> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Increments the calendar version of the room and returns it, which locks
+     * its row until the current transaction ends, in a single statement
+     * (<i>PostgreSQL only, used along with
+     * {@link me.folgue.salas.bookings.BookingExclusionConstraint}</i>).
+     *
+     * @param id Id of the room.
+     * @return The room, or nothing if it doesn't exist.
+     */
+    @Transactional
+    @Query(value = """
+           UPDATE room
+           SET calendar_version = calendar_version + 1
+           WHERE id = :id
+           RETURNING *
+           """, nativeQuery = true)
+    Optional<Room> lockIncrementingCalendarVersion(@Param("id") Long id);
+
+    /**
+     * Returns the rooms with an id greater than {@code id}, sorted by their id.
+     *
+     * @param id Id of the last room of the previous page.
+     * @param limit Maximum number of rooms to return.
+     * @return The rooms of the page.
+     */
+    List<Room> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Returns the rooms with at least the given capacity, whose location
+     * starts with {@code locationPrefix}, and that have no bookings with a
+     * conflict with the range of time specified.
+     *
+     * @param minCapacity Minimum capacity of the rooms.
+     * @param locationPrefix Prefix of the location of the rooms (<i>an empty
+     * string matches all the rooms</i>).
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @return The rooms available, sorted by their id.
+     */
+    @Query("""
+           SELECT r FROM Room r
+           WHERE r.capacity >= :minCapacity
+           AND r.location LIKE CONCAT(:locationPrefix, '%')
+           AND NOT EXISTS (
+               SELECT 1 FROM Booking b
+               WHERE b.room = r
+               AND b.startDate <= :endDate
+               AND b.startDate >= :#{@bookingDurationBound.earliestStartOf(#startDate)}
+               AND b.endDate >= :startDate
+           )
+           ORDER BY r.id
+           """)
+    List<Room> findAvailable(
+            @Param("minCapacity") int minCapacity,
+            @Param("locationPrefix") String locationPrefix,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * Returns a value that is incremented whenever a room is created, updated
+     * or removed, without loading the rooms.
+     *
+     * @return The version of the list of rooms.
+     */
+    @Query("""
+           SELECT new me.folgue.salas.rooms.RoomListVersion(c.version)
+           FROM RoomListCounter c
+           """)
+    RoomListVersion findListVersion();
+
+    /**
+     * Increments the version of the list of rooms, in the transaction of the
+     * change to the rooms.
+     *
+     * @return The number of rows updated.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+           UPDATE RoomListCounter c
+           SET c.version = c.version + 1
+           """)
+    int incrementListVersion();
+
+    /**
+     * @param id Id of the room.
+     * @return The version of the room and of its bookings, or nothing if the
+     * room doesn't exist.
+     */
+    @Query("""
+           SELECT new me.folgue.salas.rooms.RoomCalendarVersion(r.id, r.version, r.calendarVersion)
+           FROM Room r
+           WHERE r.id = :id
+           """)
+    Optional<RoomCalendarVersion> findCalendarVersion(@Param("id") Long id);
+
+    /**
+     * Increments the calendar version of the given rooms.
+     *
+     * @param ids Ids of the rooms whose bookings have changed.
+     * @return The number of rooms updated.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+           UPDATE Room r
+           SET r.calendarVersion = r.calendarVersion + 1
+           WHERE r.id IN :ids
+           """)
+    int incrementCalendarVersions(@Param("ids") Collection<Long> ids);
 }
@@ -1,12 +1,17 @@
 package me.folgue.salas.rooms;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import lombok.extern.java.Log;
+import me.folgue.salas.bookings.BookingUtils;
+import me.folgue.salas.bookings.exceptions.BookingInvalidDatesException;
+import me.folgue.salas.common.KeysetPage;
 import me.folgue.salas.rooms.exceptions.RoomAlreadyExistsException;
 import me.folgue.salas.rooms.exceptions.RoomControllerException;
 import me.folgue.salas.rooms.exceptions.RoomDoesntExistException;
 import me.folgue.salas.rooms.exceptions.RoomInvalidCapacityException;
 import me.folgue.salas.rooms.exceptions.RoomInvalidLocationException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -18,6 +23,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping(path = "/salas")
@@ -31,11 +37,75 @@ public class RoomRestController {
     }
 
     /**
-     * @return A list of all the rooms stored in the database.
+     * Returns all the rooms, along with an ETag that changes whenever any of
+     * them changes, if the ETag sent in {@code If-None-Match} is still valid,
+     * {@code 304} is returned without the rooms.
+     * <br>
+     * The ETag is the version of the list, read along with the rooms (<i>see
+     * {@link RoomService#getAllRooms(java.util.function.Predicate)}</i>), so
+     * it always matches the body.
+     *
+     * @param request Request, used to check the ETag.
+     * @return A list of all the rooms stored in the database, or nothing if
+     * they haven't changed.
      */
     @GetMapping("/")
-    public List<Room> getAllSalas() {
-        return this.service.getAllRooms();
+    public List<Room> getAllSalas(WebRequest request) {
+        return this.service.getAllRooms(version -> request.checkNotModified(version.toETag())).rooms();
+    }
+
+    /**
+     * Returns a page of the rooms stored in the database, the next page can be
+     * requested passing the {@code nextCursor} of the page as {@code after}.
+     *
+     * @param limit Maximum number of rooms of the page (<i>up to
+     * {@link KeysetPage#MAX_LIMIT}</i>).
+     * @param after Id of the last room of the previous page, if not specified,
+     * the first page is returned.
+     * @return The page of rooms.
+     */
+    @GetMapping(path = "/", params = "limit")
+    public KeysetPage<Room> getSalasPage(@RequestParam int limit, @RequestParam(required = false) Long after) {
+        return this.service.getPage(after, limit);
+    }
+
+    /**
+     * Returns the rooms that can be booked in the given range of time.
+     *
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @param minCapacity Minimum capacity of the rooms.
+     * @param building Letter of the location of the rooms (<i>optional</i>).
+     * @return The rooms that have no bookings in the range of time, sorted by
+     * their id.
+     * @throws RoomControllerException If the building isn't a letter.
+     * @throws BookingInvalidDatesException If the range of time is invalid.
+     */
+    @GetMapping("/disponibles")
+    public List<Room> getAvailableSalas(
+            @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm") LocalDateTime endDate,
+            @RequestParam(defaultValue = "1") Integer minCapacity,
+            @RequestParam(required = false) String building
+    ) throws RoomControllerException, BookingInvalidDatesException {
+        if (building != null && (building.length() != 1 || !Character.isLetter(building.charAt(0)))) {
+            throw new RoomInvalidLocationException(building);
+        }
+
+        if (!BookingUtils.isValidDateRange(startDate, endDate)) {
+            throw new BookingInvalidDatesException(startDate, endDate);
+        }
+
+        return this.service.findAvailableRooms(startDate, endDate, minCapacity, building == null ? null : building.charAt(0));
+    }
+
+    /**
+     * @return The statistics of the caches of the rooms (<i>hits, misses and
+     * evictions</i>), used to size them.
+     */
+    @GetMapping("/cache")
+    public List<RoomCacheStats> getCacheStats() {
+        return this.service.getCacheStats();
     }
 
     /**
@@ -47,7 +117,7 @@ public class RoomRestController {
      */
     @GetMapping("/{id}")
     public Room getRoomById(@PathVariable("id") Long roomId) throws RoomControllerException {
-        log.info(String.format("Attemping to check room with ID %d", roomId));
+        log.info(() -> String.format("Attemping to check room with ID %d", roomId));
         return this.service.findRoomById(roomId).orElseThrow(() -> new RoomDoesntExistException(roomId));
     }
 
@@ -72,9 +142,8 @@ public class RoomRestController {
             throw new RoomInvalidCapacityException(capacity);
         }
 
-        var room = new Room(name, capacity, location);
-        room = this.service.save(room);
-        log.info(String.format("New room with id '%d' created.", room.getId()));
+        Room room = this.service.save(new Room(name, capacity, location));
+        log.info(() -> String.format("New room with id '%d' created.", room.getId()));
         return room;
     }
 
@@ -87,15 +156,32 @@ public class RoomRestController {
      */
     @DeleteMapping("/{id}")
     public Room deleteSala(@PathVariable("id") Long roomId) throws RoomControllerException {
-        Room room = this.service.findRoomById(roomId)
+        Room room = this.service.findRoomForWrite(roomId)
                 .orElseThrow(() -> new RoomDoesntExistException(roomId));
         this.service.delete(
                 room.getId()
         );
-        log.info(String.format("Room with id '%d' was removed.", room.getId()));
+        log.info(() -> String.format("Room with id '%d' was removed.", room.getId()));
         return room;
     }
 
+    /**
+     * Removes the room with the given Id, reporting how many bookings were
+     * removed along with it instead of returning the room.
+     *
+     * @param roomId Id of the room to remove.
+     * @return A summary of the removal.
+     * @throws RoomControllerException If the room doesn't exist.
+     */
+    @DeleteMapping(path = "/{id}", params = "summary=true")
+    public RoomDeletionSummary deleteSalaWithSummary(@PathVariable("id") Long roomId) throws RoomControllerException {
+        Room room = this.service.findRoomForWrite(roomId)
+                .orElseThrow(() -> new RoomDoesntExistException(roomId));
+        int deletedBookings = this.service.delete(room.getId());
+        log.info(() -> String.format("Room with id '%d' was removed along with %d bookings.", room.getId(), deletedBookings));
+        return new RoomDeletionSummary(room.getId(), deletedBookings);
+    }
+
     /**
      * Updates a room of the given id with the new information.
      *
@@ -114,27 +200,32 @@ public class RoomRestController {
             @RequestParam(required = false) Integer capacity,
             @RequestParam(required = false) String location
     ) throws RoomControllerException {
-        Room sala = this.service.findRoomById(roomId).orElseThrow(() -> new RoomDoesntExistException(roomId));
+        Room sala = this.service.findRoomForWrite(roomId).orElseThrow(() -> new RoomDoesntExistException(roomId));
+
+        // The room is a copy loaded from the database, not the one of the
+        // cache of the rooms, so the cache doesn't see the changes until the
+        // room is saved, and keeps the previous room if saving fails.
+        if (capacity != null && capacity < 1) {
+            throw new RoomInvalidCapacityException(capacity);
+        }
+
+        if (location != null && !Room.isValidLocation(location)) {
+            throw new RoomInvalidLocationException(location);
+        }
 
         if (name != null) {
             sala.setName(name);
         }
 
         if (capacity != null) {
-            if (capacity < 1) {
-                throw new RoomInvalidCapacityException(capacity);
-            }
             sala.setCapacity(capacity);
         }
 
         if (location != null) {
-            if (!Room.isValidLocation(location)) {
-                throw new RoomInvalidLocationException(location);
-            }
             sala.setLocation(location);
         }
 
-        log.info(String.format("Updating room with id '%d', new name '%s', new capacity'%s' and new location '%s'", roomId, name, capacity, location));
+        log.info(() -> String.format("Updating room with id '%d', new name '%s', new capacity'%s' and new location '%s'", roomId, name, capacity, location));
         sala = this.service.save(sala);
         return sala;
     }
@@ -157,6 +248,12 @@ public class RoomRestController {
         return e.getMessage();
     }
 
+    @ExceptionHandler(BookingInvalidDatesException.class)
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    public String handleInvalidDates(BookingInvalidDatesException e) {
+        return e.getMessage();
+    }
+
     @ExceptionHandler(RoomInvalidCapacityException.class)
     @ResponseStatus(value = HttpStatus.BAD_REQUEST)
     public String handleDoesntExistsException(RoomInvalidCapacityException e) {
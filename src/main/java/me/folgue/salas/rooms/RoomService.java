@@ -1,47 +1,191 @@
 package me.folgue.salas.rooms;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-import me.folgue.salas.bookings.BookingRepository;
+import java.util.Set;
+import java.util.function.Predicate;
+import me.folgue.salas.bookings.BookingChangeEvent;
+import me.folgue.salas.bookings.BookingService;
+import me.folgue.salas.common.KeysetPage;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+/**
+ * Rooms almost never change, so the lookups by id and the list of all the
+ * rooms are cached (<i>bounded by size and time, see
+ * {@code spring.cache.caffeine.spec}</i>), {@link #save} and {@link #delete}
+ * keep the caches up to date.
+ */
 @Service
 public class RoomService {
 
+    public static final String ROOMS_CACHE = "rooms";
+    public static final String ROOM_LIST_CACHE = "roomList";
+
     private final RoomRepository repository;
-    private final BookingRepository bookingRepository;
+    private final BookingService bookingService;
+    private final CacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public RoomService(RoomRepository repository, BookingRepository bookingRepository) {
+    public RoomService(RoomRepository repository, BookingService bookingService, CacheManager cacheManager, ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
-        this.bookingRepository = bookingRepository;
+        this.bookingService = bookingService;
+        this.cacheManager = cacheManager;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
      * Looks for a room with the id specified.
+     * <br>
+     * <b>NOTE</b>: The room returned is shared with the cache of the rooms,
+     * so it mustn't be modified, {@link #findRoomForWrite(long)} returns a
+     * room that can be.
      *
      * @param roomId Id of the room.
      * @return An {@link Optional} containing the room if it exists, if not, an
      * empty {@link Optional} gets returned.
      */
+    @Cacheable(cacheNames = ROOMS_CACHE, unless = "#result == null")
+    @Transactional(readOnly = true)
     public Optional<Room> findRoomById(long roomId) {
         return this.repository.findById(roomId);
     }
 
+    /**
+     * Looks for a room with the id specified, to modify it (<i>the writes of
+     * bookings look up their room themselves, see
+     * {@link BookingService#saveIfAvailable(me.folgue.salas.bookings.Booking, long)}</i>).
+     * <br>
+     * Unlike {@link #findRoomById(long)}, it's read from the primary
+     * (<i>see {@link me.folgue.salas.datasource.ReplicaRoutingDataSource}</i>)
+     * and not from the cache, so a room created a moment ago is found, and
+     * the room has its current version.
+     *
+     * @param roomId Id of the room.
+     * @return An {@link Optional} containing the room if it exists, if not, an
+     * empty {@link Optional} gets returned.
+     */
+    @Transactional
+    public Optional<Room> findRoomForWrite(long roomId) {
+        return this.repository.findById(roomId);
+    }
+
     /**
      * @return A list containing all the rooms stored in the database.
      */
+    @Cacheable(cacheNames = ROOM_LIST_CACHE)
+    @Transactional(readOnly = true)
     public List<Room> getAllRooms() {
         return this.repository.findAll();
     }
 
+    /**
+     * Returns all the rooms along with the version of the list, both read
+     * from the same snapshot, unless the version is current.
+     * <br>
+     * The rooms are cached by the version they were read with, so the list
+     * cached for a version can't be served for a newer one (<i>as happens
+     * when the cache of an instance is evicted after the change is committed,
+     * or a different instance made the change</i>).
+     *
+     * @param isCurrent Checks if the version is the one the client already
+     * has (<i>such as the ETag of the request</i>).
+     * @return The version of the list, and the rooms if the version isn't
+     * current.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public RoomList getAllRooms(Predicate<RoomListVersion> isCurrent) {
+        RoomListVersion version = this.repository.findListVersion();
+        if (isCurrent.test(version)) {
+            return new RoomList(version, null);
+        }
+
+        Cache cache = this.cacheManager.getCache(ROOM_LIST_CACHE);
+        List<Room> rooms = cache == null ? this.repository.findAll() : cache.get(version, this.repository::findAll);
+        return new RoomList(version, rooms);
+    }
+
+    /**
+     * @param roomId Id of the room.
+     * @return The version of the room and of its bookings, or nothing if the
+     * room doesn't exist.
+     */
+    @Transactional(readOnly = true)
+    public Optional<RoomCalendarVersion> findCalendarVersion(long roomId) {
+        return this.repository.findCalendarVersion(roomId);
+    }
+
+    /**
+     * Returns a page of the rooms sorted by their id.
+     *
+     * @param afterId Id of the last room of the previous page, or {@code null}
+     * to get the first page.
+     * @param limit Maximum number of rooms of the page.
+     * @return The page, whose cursor is the id of its last room.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Room> getPage(Long afterId, int limit) {
+        int pageSize = KeysetPage.clampLimit(limit);
+        List<Room> rows = this.repository.findByIdGreaterThanOrderByIdAsc(
+                afterId == null ? 0L : afterId,
+                Limit.of(pageSize + 1)
+        );
+        return KeysetPage.of(rows, pageSize, r -> r.getId().toString());
+    }
+
+    /**
+     * Returns the rooms that can be booked between {@code startDate} and
+     * {@code endDate}, with a single query (<i>plus one for the recurring
+     * bookings</i>).
+     *
+     * @param startDate Start of the range of time.
+     * @param endDate End of the range of time.
+     * @param minCapacity Minimum capacity of the rooms.
+     * @param building Letter of the location of the rooms, or {@code null} for
+     * any location.
+     * @return The rooms available, sorted by their id.
+     */
+    @Transactional(readOnly = true)
+    public List<Room> findAvailableRooms(LocalDateTime startDate, LocalDateTime endDate, int minCapacity, Character building) {
+        List<Room> rooms = this.repository.findAvailable(minCapacity, building == null ? "" : building.toString(), startDate, endDate);
+        Set<Long> busyRooms = this.bookingService.findRoomsWithRecurringConflict(startDate, endDate);
+        if (busyRooms.isEmpty()) {
+            return rooms;
+        }
+        return rooms.stream()
+                .filter(room -> !busyRooms.contains(room.getId()))
+                .toList();
+    }
+
     /**
      * Saves the room object to the database.
      *
      * @param room Room to be saved in the database.
      * @return The room that was saved.
      */
+    @Caching(
+            put = @CachePut(cacheNames = ROOMS_CACHE, key = "#result.id"),
+            evict = @CacheEvict(cacheNames = ROOM_LIST_CACHE, allEntries = true)
+    )
+    @Transactional
     public Room save(Room room) {
-        return this.repository.save(room);
+        RoomChangeEvent.Type type = room.getId() == null ? RoomChangeEvent.Type.CREATED : RoomChangeEvent.Type.UPDATED;
+        Room saved = this.repository.save(room);
+        this.repository.incrementListVersion();
+        this.eventPublisher.publishEvent(RoomChangeEvent.of(type, saved));
+        return saved;
     }
 
     /**
@@ -49,20 +193,62 @@ public class RoomService {
      * room with such {@code roomId}, this function won't do anything. <br>
      *
      * <b>NOTE: It also removes all bookings related to the room before removing
-     * it.</b>
+     * it, in the same transaction and without loading them.</b>
+     * <br>
+     * The room is evicted from the caches once the transaction is committed
+     * (<i>see {@link #evictDeleted}</i>).
+     * <br>
+     * The room is locked as the writes of its bookings lock it (<i>see
+     * {@link BookingService#lockRoom}</i>), so a booking can't be inserted
+     * meanwhile, which would make the deletion fail.
      *
      * @param roomId
+     * @return The number of bookings removed along with the room.
      */
-    public void delete(long roomId) {
-        // Prevent attempting to remove bookings of a room that doesn't exist.
-        if (!this.repository.existsById(roomId)) {
-            return;
+    @Transactional
+    public int delete(long roomId) {
+        // Prevent attempting to remove bookings of a room that doesn't exist,
+        // locking it so the writes of its bookings that already locked it
+        // finish first, and the ones that didn't find it removed.
+        Optional<Room> room = this.bookingService.lockRoom(roomId);
+        if (room.isEmpty()) {
+            return 0;
         }
 
-        this.bookingRepository.findAll().stream()
-                .filter(b -> b.getRoom().getId() == roomId)
-                .forEach(this.bookingRepository::delete);
-
+        int deletedBookings = this.bookingService.deleteAllForRoom(roomId);
         this.repository.deleteById(roomId);
+        this.repository.incrementListVersion();
+        // Sent once the transaction is committed.
+        this.eventPublisher.publishEvent(BookingChangeEvent.roomDeleted(roomId));
+        this.eventPublisher.publishEvent(RoomChangeEvent.of(RoomChangeEvent.Type.DELETED, room.get()));
+        return deletedBookings;
+    }
+
+    /**
+     * Evicts a deleted room from the caches once its deletion has been
+     * committed. Evicting it before, a lookup made meanwhile would load the
+     * room still committed into the cache, where it would stay after the
+     * deletion.
+     *
+     * @param event Change made to a room.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void evictDeleted(RoomChangeEvent event) {
+        if (event.type() != RoomChangeEvent.Type.DELETED) {
+            return;
+        }
+        Optional.ofNullable(this.cacheManager.getCache(ROOMS_CACHE)).ifPresent(cache -> cache.evict(event.roomId()));
+        Optional.ofNullable(this.cacheManager.getCache(ROOM_LIST_CACHE)).ifPresent(Cache::clear);
+    }
+
+    /**
+     * @return The statistics of the caches of the rooms.
+     */
+    public List<RoomCacheStats> getCacheStats() {
+        return List.of(ROOMS_CACHE, ROOM_LIST_CACHE).stream()
+                .map(this.cacheManager::getCache)
+                .filter(CaffeineCache.class::isInstance)
+                .map(cache -> RoomCacheStats.of(cache.getName(), ((CaffeineCache) cache).getNativeCache()))
+                .toList();
     }
 }
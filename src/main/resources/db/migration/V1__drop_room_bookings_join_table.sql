@@ -0,0 +1,3 @@
+-- Room.bookings used to be mapped with a join table, next to booking.room_id,
+-- now it's mapped by booking.room_id alone.
+DROP TABLE IF EXISTS room_bookings;
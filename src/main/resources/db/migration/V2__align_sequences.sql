@@ -0,0 +1,16 @@
+-- Tables created when the ids were generated by identity columns contain ids
+-- the sequences don't know about. This creates the sequences (if Hibernate
+-- hasn't created them yet) and moves them past those ids.
+CREATE SEQUENCE IF NOT EXISTS room_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS booking_seq START WITH 1 INCREMENT BY 50;
+
+DO $$
+BEGIN
+    IF to_regclass('room') IS NOT NULL THEN
+        PERFORM setval('room_seq', GREATEST((SELECT last_value FROM room_seq), (SELECT COALESCE(MAX(id), 1) FROM room)));
+    END IF;
+    IF to_regclass('booking') IS NOT NULL THEN
+        PERFORM setval('booking_seq', GREATEST((SELECT last_value FROM booking_seq), (SELECT COALESCE(MAX(id), 1) FROM booking)));
+    END IF;
+END
+$$;
@@ -0,0 +1,6 @@
+-- Versions used for optimistic locking and the ETags of the rooms and their
+-- bookings. The tables don't exist yet on new databases, Hibernate creates
+-- them with the columns.
+ALTER TABLE IF EXISTS room ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+ALTER TABLE IF EXISTS room ADD COLUMN IF NOT EXISTS calendar_version bigint NOT NULL DEFAULT 0;
+ALTER TABLE IF EXISTS booking ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,14 @@
+-- Bookings that ended before the retention of salas.bookings.archive are
+-- moved here (see BookingArchiver), so the booking table only keeps the ones
+-- the calendars and the conflict checks need.
+CREATE TABLE IF NOT EXISTS booking_archive (
+    id bigint PRIMARY KEY,
+    organizer varchar(255),
+    start_date timestamp(6) NOT NULL,
+    end_date timestamp(6) NOT NULL,
+    room_id bigint,
+    archived_at timestamp(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_booking_archive_start_date ON booking_archive (start_date, id);
+CREATE INDEX IF NOT EXISTS idx_booking_archive_room_dates ON booking_archive (room_id, start_date, end_date);
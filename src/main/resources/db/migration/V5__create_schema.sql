@@ -0,0 +1,50 @@
+-- The schema used to be created and updated by Hibernate (ddl-auto=update),
+-- now the migrations own it and Hibernate only validates it. This creates the
+-- tables and sequences on new databases, matching what Hibernate generated,
+-- so existing databases only get the indexes they lack.
+CREATE SEQUENCE IF NOT EXISTS room_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS booking_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS recurring_booking_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS room (
+    id bigint PRIMARY KEY,
+    name varchar(255),
+    capacity integer,
+    location varchar(255),
+    version bigint NOT NULL DEFAULT 0,
+    calendar_version bigint NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS booking (
+    id bigint PRIMARY KEY,
+    organizer varchar(255),
+    start_date timestamp(6),
+    end_date timestamp(6),
+    room_id bigint REFERENCES room (id),
+    version bigint NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS recurring_booking (
+    id bigint PRIMARY KEY,
+    organizer varchar(255),
+    start_date timestamp(6),
+    end_date timestamp(6),
+    frequency varchar(255) CHECK (frequency IN ('DAILY', 'WEEKLY')),
+    recurrence_interval integer NOT NULL,
+    occurrences integer NOT NULL,
+    last_end_date timestamp(6),
+    room_id bigint REFERENCES room (id),
+    version bigint
+);
+
+-- RoomRepository.findAvailable
+CREATE INDEX IF NOT EXISTS idx_room_capacity ON room (capacity);
+CREATE INDEX IF NOT EXISTS idx_room_location ON room (location);
+-- RoomRepository.findByName
+CREATE INDEX IF NOT EXISTS idx_room_name ON room (name);
+-- BookingRepository.findByRoomId and the overlap queries
+CREATE INDEX IF NOT EXISTS idx_booking_room_dates ON booking (room_id, start_date, end_date);
+-- Pages of bookings sorted by their start date
+CREATE INDEX IF NOT EXISTS idx_booking_start_date ON booking (start_date, id);
+-- RecurringBookingRepository overlap queries
+CREATE INDEX IF NOT EXISTS idx_recurring_booking_room_dates ON recurring_booking (room_id, start_date, last_end_date);
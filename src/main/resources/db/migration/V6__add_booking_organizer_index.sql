@@ -0,0 +1,3 @@
+-- Backs the pages of bookings of an organizer (GET /reservas/organizador/{organizer}),
+-- sorted by their start date and id.
+CREATE INDEX IF NOT EXISTS idx_booking_organizer_start_date ON booking (organizer, start_date, id);
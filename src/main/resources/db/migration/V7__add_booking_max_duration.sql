@@ -0,0 +1,12 @@
+-- Duration of the longest booking, which bounds the start of the bookings in
+-- the overlap queries from below, so PostgreSQL skips the older partitions
+-- (see BookingDurationBound and BookingPartitioning). Starts as the one of the
+-- longest booking already stored, then it's raised along with the bookings.
+CREATE TABLE IF NOT EXISTS booking_max_duration (
+    id integer PRIMARY KEY,
+    seconds bigint NOT NULL
+);
+INSERT INTO booking_max_duration (id, seconds)
+SELECT 1, COALESCE(CEIL(MAX(EXTRACT(EPOCH FROM end_date - start_date))), 0)
+FROM booking
+ON CONFLICT (id) DO NOTHING;
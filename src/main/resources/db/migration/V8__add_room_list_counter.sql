@@ -0,0 +1,7 @@
+-- Version of the list of rooms (GET /salas/), incremented along with every
+-- change to a room (see RoomListCounter).
+CREATE TABLE IF NOT EXISTS room_list_counter (
+    id integer PRIMARY KEY,
+    version bigint NOT NULL
+);
+INSERT INTO room_list_counter (id, version) VALUES (1, 0) ON CONFLICT (id) DO NOTHING;
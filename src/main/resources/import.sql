@@ -0,0 +1,3 @@
+-- Run by Hibernate only when it creates the schema from the entities (embedded profile).
+INSERT INTO room_list_counter (id, version) VALUES (1, 0);
+INSERT INTO booking_max_duration (id, seconds) VALUES (1, 0);
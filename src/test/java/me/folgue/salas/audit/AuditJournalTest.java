@@ -0,0 +1,146 @@
+package me.folgue.salas.audit;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author folgue
+ */
+public class AuditJournalTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, Month.JULY, 21, 10, 0);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testRecordRoundTrip() {
+        AuditRecord record = booking(0, 7L, "Folgue");
+        ByteBuffer buffer = ByteBuffer.allocate(AuditRecord.SIZE);
+        record.writeTo(buffer);
+        buffer.flip();
+
+        assertEquals(record, AuditRecord.readFrom(buffer));
+    }
+
+    @Test
+    public void testRecordRoundTrip_Room() {
+        AuditRecord record = new AuditRecord(START, AuditAction.ROOM_CREATED, 2L, null, null, null, "Sala A");
+        ByteBuffer buffer = ByteBuffer.allocate(AuditRecord.SIZE);
+        record.writeTo(buffer);
+        buffer.flip();
+
+        assertEquals(record, AuditRecord.readFrom(buffer));
+    }
+
+    @Test
+    public void testRecord_SubjectTruncated() {
+        ByteBuffer buffer = ByteBuffer.allocate(AuditRecord.SIZE);
+        booking(0, 1L, "ñ".repeat(100)).writeTo(buffer);
+        buffer.flip();
+
+        assertEquals("ñ".repeat(AuditRecord.MAX_SUBJECT_BYTES / 2), AuditRecord.readFrom(buffer).subject());
+    }
+
+    @Test
+    public void testRecord_Corrupted() {
+        ByteBuffer buffer = ByteBuffer.allocate(AuditRecord.SIZE);
+        booking(0, 1L, "Folgue").writeTo(buffer);
+        buffer.put(20, (byte) 1);
+        buffer.flip();
+
+        assertNull(AuditRecord.readFrom(buffer));
+    }
+
+    @Test
+    public void testRead_Range() throws Exception {
+        AuditJournal journal = this.journal(16);
+        for (int i = 0; i < 10; i++) {
+            journal.append(booking(i, i, "Organizer " + i));
+        }
+        journal.close();
+
+        List<AuditRecord> records = journal.read(START.plusMinutes(3), START.plusMinutes(6), 100);
+
+        assertEquals(List.of(3L, 4L, 5L, 6L), records.stream().map(AuditRecord::bookingId).toList());
+        assertEquals(2, journal.read(START, START.plusMinutes(9), 2).size());
+    }
+
+    @Test
+    public void testRotation() throws Exception {
+        AuditJournal journal = this.journal(4);
+        for (int i = 0; i < 10; i++) {
+            journal.append(booking(i, i, "Organizer"));
+        }
+        journal.close();
+
+        assertEquals(3, this.countSegments());
+        assertEquals(10, journal.read(START, START.plusMinutes(10), 100).size());
+        assertEquals(List.of(5L, 6L), journal.read(START.plusMinutes(5), START.plusMinutes(6), 100).stream().map(AuditRecord::bookingId).toList());
+    }
+
+    @Test
+    public void testRotation_OldSegmentsRemoved() throws Exception {
+        AuditJournal journal = new AuditJournal(this.directory, 4, 2);
+        journal.start();
+        for (int i = 0; i < 10; i++) {
+            journal.append(booking(i, i, "Organizer"));
+        }
+        journal.close();
+
+        assertEquals(2, this.countSegments());
+        assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L), journal.read(START, START.plusMinutes(10), 100).stream().map(AuditRecord::bookingId).toList());
+    }
+
+    @Test
+    public void testReopen_ContinuesAfterLastRecord() throws Exception {
+        AuditJournal journal = this.journal(16);
+        journal.append(booking(0, 1L, "Before"));
+        journal.close();
+
+        AuditJournal reopened = this.journal(16);
+        reopened.append(booking(1, 2L, "After"));
+        reopened.close();
+
+        assertEquals(List.of("Before", "After"), reopened.read(START, START.plusMinutes(1), 100).stream().map(AuditRecord::subject).toList());
+        assertEquals(1, this.countSegments());
+    }
+
+    @Test
+    public void testTimestampsNonDecreasing() throws Exception {
+        AuditJournal journal = this.journal(16);
+        journal.append(booking(5, 1L, "Later"));
+        journal.append(booking(2, 2L, "Earlier"));
+        journal.close();
+
+        List<AuditRecord> records = journal.read(START, START.plusMinutes(10), 100);
+
+        assertEquals(START.plusMinutes(5), records.get(1).timestamp());
+    }
+
+    private AuditJournal journal(int segmentRecords) throws Exception {
+        AuditJournal journal = new AuditJournal(this.directory, segmentRecords, 0);
+        journal.start();
+        return journal;
+    }
+
+    private long countSegments() throws Exception {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.count();
+        }
+    }
+
+    private static AuditRecord booking(int minutes, long bookingId, String organizer) {
+        return new AuditRecord(START.plusMinutes(minutes), AuditAction.BOOKING_CREATED, 1L, bookingId,
+                START.plusDays(1), START.plusDays(1).plusHours(1), organizer);
+    }
+}
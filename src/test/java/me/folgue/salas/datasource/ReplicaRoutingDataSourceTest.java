@@ -0,0 +1,133 @@
+package me.folgue.salas.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ * @author folgue
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica0;
+    private DataSource replica1;
+    private SimpleMeterRegistry registry;
+    private ReplicaRoutingDataSource dataSource;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        this.primary = dataSource();
+        this.replica0 = dataSource();
+        this.replica1 = dataSource();
+        this.registry = new SimpleMeterRegistry();
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", this.replica0);
+        replicas.put("replica-1", this.replica1);
+        this.dataSource = new ReplicaRoutingDataSource(this.primary, replicas, 1, this.registry);
+        this.dataSource.afterPropertiesSet();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void testGetConnection_WritesUsePrimary() throws SQLException {
+        this.dataSource.getConnection();
+
+        verify(this.primary).getConnection();
+        verifyNoInteractions(this.replica0, this.replica1);
+    }
+
+    @Test
+    public void testGetConnectionWithCredentials_UsesPrimary() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        this.dataSource.getConnection("salas_api", "salas1234");
+
+        verify(this.primary).getConnection("salas_api", "salas1234");
+        verifyNoInteractions(this.replica0, this.replica1);
+        assertEquals(1, this.registry.get("salas.datasource.connections").tag("target", ReplicaRoutingDataSource.PRIMARY).counter().count());
+    }
+
+    @Test
+    public void testGetConnection_NoReplicasUsePrimary() throws SQLException {
+        ReplicaRoutingDataSource withoutReplicas = new ReplicaRoutingDataSource(this.primary, Map.of(), 1, this.registry);
+        withoutReplicas.afterPropertiesSet();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        withoutReplicas.getConnection();
+
+        verify(this.primary).getConnection();
+    }
+
+    @Test
+    public void testGetConnection_ReadOnlyTakeTurns() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        this.dataSource.getConnection();
+        this.dataSource.getConnection();
+        this.dataSource.getConnection();
+
+        verify(this.replica0, times(2)).getConnection();
+        verify(this.replica1).getConnection();
+        verifyNoInteractions(this.primary);
+        assertEquals(2.0, this.registry.get("salas.datasource.connections").tag("target", "replica-0").counter().count());
+    }
+
+    @Test
+    public void testGetConnection_FallsBackToPrimary() throws SQLException {
+        when(this.replica0.getConnection()).thenThrow(new SQLException("down"));
+        when(this.replica1.getConnection()).thenThrow(new SQLException("down"));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        this.dataSource.getConnection();
+        this.dataSource.getConnection();
+        this.dataSource.getConnection();
+
+        // Each replica is only tried once, then skipped until it recovers.
+        verify(this.replica0).getConnection();
+        verify(this.replica1).getConnection();
+        verify(this.primary, times(3)).getConnection();
+        assertEquals(0.0, this.registry.get("salas.datasource.replicas.healthy").tag("target", "replica-0").gauge().value());
+    }
+
+    @Test
+    public void testCheckReplicas_Recovers() throws SQLException {
+        Connection connection = this.replica0.getConnection();
+        when(this.replica0.getConnection()).thenThrow(new SQLException("down")).thenReturn(connection);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        this.dataSource.checkReplicas();
+        this.dataSource.getConnection();
+        this.dataSource.getConnection();
+        verify(this.replica1, times(3)).getConnection();
+
+        this.dataSource.checkReplicas();
+        this.dataSource.getConnection();
+        this.dataSource.getConnection();
+        verify(this.replica0, times(4)).getConnection();
+    }
+
+    private static DataSource dataSource() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+}
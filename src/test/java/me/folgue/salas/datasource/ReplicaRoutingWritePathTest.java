@@ -0,0 +1,83 @@
+package me.folgue.salas.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDateTime;
+import me.folgue.salas.bookings.Booking;
+import me.folgue.salas.bookings.BookingService;
+import me.folgue.salas.rooms.Room;
+import me.folgue.salas.rooms.RoomService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks which database the lookups of the services are sent to, with the
+ * in-memory database acting as both the primary and the replica.
+ *
+ * @author folgue
+ */
+@SpringBootTest(properties = {
+    "salas.datasource.replicas.enabled=true",
+    "salas.datasource.replicas.urls=jdbc:h2:mem:salasdb;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+    "salas.audit.enabled=false"
+})
+@ActiveProfiles("embedded")
+public class ReplicaRoutingWritePathTest {
+
+    @Autowired
+    private RoomService roomService;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private MeterRegistry registry;
+
+    private Room room;
+    private Booking booking;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        this.room = this.roomService.save(new Room("Sala", 10, "A1"));
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+        this.booking = this.bookingService.saveIfAvailable(new Booking("folgue", start, start.plusHours(1), this.room));
+    }
+
+    @Test
+    public void testFindRoomForWrite_UsesPrimary() {
+        double primary = this.connections(ReplicaRoutingDataSource.PRIMARY);
+        double replica = this.connections("replica-0");
+
+        assertTrue(this.roomService.findRoomForWrite(this.room.getId()).isPresent());
+
+        assertEquals(primary + 1, this.connections(ReplicaRoutingDataSource.PRIMARY));
+        assertEquals(replica, this.connections("replica-0"));
+    }
+
+    @Test
+    public void testFindBookingForWrite_UsesPrimary() {
+        double primary = this.connections(ReplicaRoutingDataSource.PRIMARY);
+        double replica = this.connections("replica-0");
+
+        assertTrue(this.bookingService.findByIdForWrite(this.booking.getId()).isPresent());
+
+        assertEquals(primary + 1, this.connections(ReplicaRoutingDataSource.PRIMARY));
+        assertEquals(replica, this.connections("replica-0"));
+    }
+
+    @Test
+    public void testReadOnlyLookup_UsesReplica() {
+        double primary = this.connections(ReplicaRoutingDataSource.PRIMARY);
+        double replica = this.connections("replica-0");
+
+        assertTrue(this.roomService.findCalendarVersion(this.room.getId()).isPresent());
+
+        assertEquals(primary, this.connections(ReplicaRoutingDataSource.PRIMARY));
+        assertEquals(replica + 1, this.connections("replica-0"));
+    }
+
+    private double connections(String target) {
+        return this.registry.get("salas.datasource.connections").tag("target", target).counter().count();
+    }
+}
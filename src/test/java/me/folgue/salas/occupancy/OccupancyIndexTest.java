@@ -0,0 +1,135 @@
+package me.folgue.salas.occupancy;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.List;
+import me.folgue.salas.bookings.BookingInterval;
+import me.folgue.salas.bookings.BookingRepository;
+import me.folgue.salas.bookings.RecurringBookingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ *
+ * @author folgue
+ */
+public class OccupancyIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, Month.JULY, 21);
+
+    private OccupancyIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        this.index = OccupancyIndex.of(List.of(
+                interval(1L, 1L, at(0, 10, 0), at(0, 11, 0)),
+                interval(2L, 1L, at(0, 11, 10), at(0, 11, 20)),
+                interval(3L, 2L, at(0, 10, 30), at(0, 10, 40))
+        ), TODAY, 15, 1, 2);
+    }
+
+    @Test
+    public void testGetOccupancy() {
+        DayOccupancy occupancy = this.index.getOccupancy(1L, TODAY);
+
+        // 10:00 - 10:45 (booking 1) and 11:00 - 11:15 (booking 2)
+        assertEquals(6, occupancy.occupiedSlots());
+        assertEquals(6.0 / 96, occupancy.utilization());
+        assertEquals("0".repeat(40) + "111111" + "0".repeat(50), occupancy.slots());
+    }
+
+    @Test
+    public void testGetOccupancy_RoomWithoutBookings() {
+        assertEquals(0, this.index.getOccupancy(3L, TODAY).occupiedSlots());
+    }
+
+    @Test
+    public void testPut_BookingAcrossDays() {
+        this.index.put(interval(4L, 3L, at(0, 23, 0), at(1, 1, 0)));
+
+        assertEquals(4, this.index.getOccupancy(3L, TODAY).occupiedSlots());
+        assertEquals(4, this.index.getOccupancy(3L, TODAY.plusDays(1)).occupiedSlots());
+    }
+
+    @Test
+    public void testPut_OutOfHorizon() {
+        this.index.put(interval(4L, 3L, at(-5, 10, 0), at(-5, 11, 0)));
+
+        assertFalse(this.index.isInHorizon(TODAY.minusDays(5)));
+        assertEquals(0, this.index.getOccupancy(3L, TODAY.minusDays(1)).occupiedSlots());
+    }
+
+    @Test
+    public void testPut_ReplacesPreviousInterval() {
+        this.index.put(interval(1L, 1L, at(1, 10, 0), at(1, 11, 0)));
+
+        assertEquals(2, this.index.getOccupancy(1L, TODAY).occupiedSlots());
+        assertEquals(4, this.index.getOccupancy(1L, TODAY.plusDays(1)).occupiedSlots());
+    }
+
+    @Test
+    public void testRemove_KeepsSharedSlots() {
+        this.index.put(interval(4L, 2L, at(0, 10, 45), at(0, 11, 0)));
+        this.index.put(interval(5L, 2L, at(0, 10, 50), at(0, 10, 55)));
+
+        this.index.remove(4L);
+
+        // Booking 3 (10:30) and booking 5 (10:45)
+        assertEquals(2, this.index.getOccupancy(2L, TODAY).occupiedSlots());
+    }
+
+    @Test
+    public void testRemoveRoom() {
+        this.index.removeRoom(1L);
+
+        assertEquals(0, this.index.getOccupancy(1L, TODAY).occupiedSlots());
+        assertEquals(1, this.index.getOccupancy(2L, TODAY).occupiedSlots());
+    }
+
+    @Test
+    public void testGetHeatmap() {
+        int[] occupiedRooms = this.index.getHeatmap(TODAY, 3).occupiedRooms();
+
+        assertEquals(96, occupiedRooms.length);
+        assertEquals(1, occupiedRooms[40]);
+        assertEquals(2, occupiedRooms[42]);
+        assertEquals(1, occupiedRooms[45]);
+        assertEquals(0, occupiedRooms[46]);
+    }
+
+    @Test
+    public void testRoll() {
+        BookingRepository repository = mock(BookingRepository.class);
+        when(repository.findAllIntervalsOverlapping(any(), any())).thenReturn(List.of(
+                interval(1L, 1L, at(-1, 10, 0), at(-1, 11, 0)),
+                interval(2L, 1L, at(1, 23, 0), at(2, 1, 0))
+        ));
+        OccupancyIndex rolled = new OccupancyIndex(repository, mock(RecurringBookingRepository.class), 15, 1, 1);
+        rolled.rebuild(TODAY);
+
+        when(repository.findAllIntervalsOverlapping(at(2, 0, 0), at(3, 0, 0))).thenReturn(List.of(
+                interval(2L, 1L, at(1, 23, 0), at(2, 1, 0)),
+                interval(3L, 1L, at(2, 12, 0), at(2, 12, 15))
+        ));
+        rolled.roll(TODAY.plusDays(1));
+
+        assertEquals(TODAY, rolled.getFirstDay());
+        assertEquals(TODAY.plusDays(2), rolled.getLastDay());
+        assertEquals(0, rolled.getOccupancy(1L, TODAY).occupiedSlots());
+        assertEquals(4, rolled.getOccupancy(1L, TODAY.plusDays(1)).occupiedSlots());
+        assertEquals(5, rolled.getOccupancy(1L, TODAY.plusDays(2)).occupiedSlots());
+    }
+
+    private static BookingInterval interval(long bookingId, long roomId, LocalDateTime startDate, LocalDateTime endDate) {
+        return new BookingInterval(bookingId, roomId, startDate, endDate);
+    }
+
+    private static LocalDateTime at(int days, int hour, int minute) {
+        return TODAY.plusDays(days).atTime(hour, minute);
+    }
+}
@@ -0,0 +1,40 @@
+package me.folgue.salas.reservas;
+
+import java.time.LocalDateTime;
+import me.folgue.salas.bookings.Booking;
+import me.folgue.salas.bookings.BookingService;
+import me.folgue.salas.rooms.Room;
+import me.folgue.salas.rooms.RoomService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the overlap queries, bounded by the duration of the longest
+ * booking, still find a booking longer than any before it.
+ *
+ * @author folgue
+ */
+@SpringBootTest(properties = "salas.audit.enabled=false")
+@ActiveProfiles("embedded")
+public class BookingDurationBoundTest {
+
+    @Autowired
+    private RoomService roomService;
+    @Autowired
+    private BookingService bookingService;
+
+    @Test
+    public void testLongBooking_FoundByTheOverlapQueries() throws Exception {
+        Room room = this.roomService.save(new Room("Sala " + System.nanoTime(), 10, "A1"));
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+        Booking booking = this.bookingService.saveIfAvailable(new Booking("folgue", start, start.plusDays(400), room));
+
+        LocalDateTime later = start.plusDays(300);
+        assertFalse(this.bookingService.isRoomAvailable(room.getId(), later, later.plusHours(1)));
+        assertEquals(booking.getId(), this.bookingService.findConflict(room.getId(), later, later.plusHours(1), null).orElseThrow().getId());
+        assertEquals(1, this.bookingService.getBookingsForRoomInRange(room.getId(), later, later.plusHours(1)).size());
+    }
+}
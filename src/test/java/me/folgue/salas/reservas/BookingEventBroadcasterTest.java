@@ -0,0 +1,284 @@
+package me.folgue.salas.reservas;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import me.folgue.salas.bookings.BookingChangeEvent;
+import me.folgue.salas.bookings.BookingEventBroadcaster;
+import me.folgue.salas.bookings.BookingSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author folgue
+ */
+public class BookingEventBroadcasterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, Month.JULY, 21, 10, 0);
+    private static final Pattern EVENT_PATTERN = Pattern.compile("id:(\\d+)\nevent:(\\w+)\n");
+
+    private RecordingBroadcaster broadcaster;
+
+    @AfterEach
+    public void tearDown() {
+        if (this.broadcaster != null) {
+            this.broadcaster.shutdown();
+        }
+    }
+
+    @Test
+    public void testPublish_FilteredByRoom() {
+        this.broadcaster = new RecordingBroadcaster(8, 8, 1, Duration.ofSeconds(10));
+        RecordingEmitter all = (RecordingEmitter) this.broadcaster.subscribe(null, null);
+        RecordingEmitter room1 = (RecordingEmitter) this.broadcaster.subscribe(1L, null);
+
+        this.broadcaster.publish(created(1L, 1L));
+        this.broadcaster.publish(created(2L, 2L));
+
+        all.awaitEvents(2);
+        room1.awaitEvents(1);
+        assertEquals(List.of("created", "created"), all.names());
+        assertEquals(1L, ((BookingChangeEvent) room1.events.get(0).data()).roomId());
+    }
+
+    @Test
+    public void testReplay_EventsAfterLastEventId() {
+        this.broadcaster = new RecordingBroadcaster(8, 8, 1, Duration.ofSeconds(10));
+        RecordingEmitter first = (RecordingEmitter) this.broadcaster.subscribe(null, null);
+        this.broadcaster.publish(created(1L, 1L));
+        this.broadcaster.publish(created(2L, 1L));
+        this.broadcaster.publish(created(3L, 2L));
+        first.awaitEvents(3);
+
+        RecordingEmitter resumed = (RecordingEmitter) this.broadcaster.subscribe(null, first.events.get(0).id());
+        RecordingEmitter resumedRoom = (RecordingEmitter) this.broadcaster.subscribe(1L, first.events.get(0).id());
+
+        resumed.awaitEvents(2);
+        resumedRoom.awaitEvents(1);
+        assertEquals(first.events.subList(1, 3), resumed.events);
+        assertEquals(first.events.get(1), resumedRoom.events.get(0));
+    }
+
+    @Test
+    public void testReplay_UpToDate() {
+        this.broadcaster = new RecordingBroadcaster(8, 8, 1, Duration.ofSeconds(10));
+        RecordingEmitter first = (RecordingEmitter) this.broadcaster.subscribe(null, null);
+        this.broadcaster.publish(created(1L, 1L));
+        first.awaitEvents(1);
+
+        RecordingEmitter resumed = (RecordingEmitter) this.broadcaster.subscribe(null, first.events.get(0).id());
+        this.broadcaster.publish(created(2L, 1L));
+
+        resumed.awaitEvents(1);
+        assertEquals(List.of(2L), resumed.bookingIds());
+    }
+
+    @Test
+    public void testReplay_GapSendsReset() {
+        this.broadcaster = new RecordingBroadcaster(8, 2, 1, Duration.ofSeconds(10));
+        RecordingEmitter first = (RecordingEmitter) this.broadcaster.subscribe(null, null);
+        for (long id = 1; id <= 4; id++) {
+            this.broadcaster.publish(created(id, 1L));
+        }
+        first.awaitEvents(4);
+
+        // Only the last 2 events are kept, the second one isn't available.
+        RecordingEmitter resumed = (RecordingEmitter) this.broadcaster.subscribe(null, first.events.get(0).id());
+
+        resumed.awaitEvents(1);
+        assertEquals(List.of(BookingEventBroadcaster.RESET_EVENT), resumed.names());
+        assertEquals(first.events.get(3).id(), resumed.events.get(0).id());
+    }
+
+    @Test
+    public void testReplay_UnknownIdSendsReset() {
+        this.broadcaster = new RecordingBroadcaster(8, 8, 1, Duration.ofSeconds(10));
+        RecordingEmitter first = (RecordingEmitter) this.broadcaster.subscribe(null, null);
+        this.broadcaster.publish(created(1L, 1L));
+        first.awaitEvents(1);
+
+        RecordingEmitter resumed = (RecordingEmitter) this.broadcaster.subscribe(null, first.events.get(0).id() + 100);
+
+        resumed.awaitEvents(1);
+        assertEquals(List.of(BookingEventBroadcaster.RESET_EVENT), resumed.names());
+    }
+
+    @Test
+    public void testOffer_FullQueueDisconnects() {
+        this.broadcaster = new RecordingBroadcaster(2, 8, 1, Duration.ofSeconds(10));
+        RecordingEmitter slow = (RecordingEmitter) this.broadcaster.subscribe(null, null);
+        slow.block();
+
+        this.broadcaster.publish(created(1L, 1L));
+        await(() -> slow.writing);
+        // The first event is being written, the next 2 fill the queue.
+        for (long id = 2; id <= 4; id++) {
+            this.broadcaster.publish(created(id, 1L));
+        }
+
+        assertEquals(0, this.broadcaster.getSubscriberCount());
+        assertFalse(slow.completed, "The emitter is completed once the write ends");
+        slow.unblock();
+        await(() -> slow.completed);
+        assertEquals(List.of(1L), slow.bookingIds());
+    }
+
+    @Test
+    public void testWriteTimeout_DisconnectsStuckSubscriber() {
+        this.broadcaster = new RecordingBroadcaster(8, 8, 2, Duration.ofMillis(50));
+        RecordingEmitter stuck = (RecordingEmitter) this.broadcaster.subscribe(1L, null);
+        RecordingEmitter other = (RecordingEmitter) this.broadcaster.subscribe(null, null);
+        stuck.block();
+
+        this.broadcaster.publish(created(1L, 1L));
+        this.broadcaster.publish(created(2L, 2L));
+
+        // The stuck write doesn't keep the other subscriber from its events.
+        other.awaitEvents(2);
+        await(() -> stuck.writing);
+        assertEquals(0, this.broadcaster.disconnectStuckSubscribers());
+        sleep(100);
+        assertEquals(1, this.broadcaster.disconnectStuckSubscribers());
+        assertEquals(1, this.broadcaster.getSubscriberCount());
+
+        stuck.unblock();
+        await(() -> stuck.completed);
+    }
+
+    @Test
+    public void testSend_FullSenderQueueDisconnects() {
+        this.broadcaster = new RecordingBroadcaster(8, 8, 1, 1, Duration.ofSeconds(10));
+        RecordingEmitter writing = (RecordingEmitter) this.broadcaster.subscribe(1L, null);
+        RecordingEmitter queued = (RecordingEmitter) this.broadcaster.subscribe(2L, null);
+        RecordingEmitter rejected = (RecordingEmitter) this.broadcaster.subscribe(3L, null);
+        writing.block();
+
+        this.broadcaster.publish(created(1L, 1L));
+        await(() -> writing.writing);
+        // The only thread is writing, the next subscriber fills the queue.
+        this.broadcaster.publish(created(2L, 2L));
+        this.broadcaster.publish(created(3L, 3L));
+
+        assertTrue(rejected.completed);
+        assertTrue(rejected.events.isEmpty());
+        assertEquals(2, this.broadcaster.getSubscriberCount());
+        writing.unblock();
+        writing.awaitEvents(1);
+        queued.awaitEvents(1);
+        assertEquals(List.of(2L), queued.bookingIds());
+    }
+
+    private static BookingChangeEvent created(long bookingId, long roomId) {
+        return BookingChangeEvent.of(BookingChangeEvent.Type.CREATED,
+                new BookingSummary(bookingId, "Folgue", START, START.plusHours(1), roomId));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the condition");
+            sleep(5);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record SentEvent(long id, String name, Object data) {
+    }
+
+    private static class RecordingBroadcaster extends BookingEventBroadcaster {
+
+        RecordingBroadcaster(int bufferSize, int historySize, int senderThreads, Duration writeTimeout) {
+            this(bufferSize, historySize, senderThreads, 8, writeTimeout);
+        }
+
+        RecordingBroadcaster(int bufferSize, int historySize, int senderThreads, int senderQueueSize, Duration writeTimeout) {
+            super(bufferSize, historySize, Duration.ofMinutes(1), senderThreads, senderQueueSize, writeTimeout);
+        }
+
+        @Override
+        protected SseEmitter createEmitter(long timeoutMillis) {
+            return new RecordingEmitter();
+        }
+    }
+
+    /**
+     * Keeps the events sent instead of writing them, and can block the
+     * writes as a client that doesn't read them.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<SentEvent> events = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch blocked = new CountDownLatch(0);
+        private volatile boolean writing;
+        private volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            this.writing = true;
+            try {
+                this.blocked.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } finally {
+                this.writing = false;
+            }
+
+            StringBuilder text = new StringBuilder();
+            Object data = null;
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String string) {
+                    text.append(string);
+                } else {
+                    data = part.getData();
+                }
+            }
+            Matcher matcher = EVENT_PATTERN.matcher(text);
+            assertTrue(matcher.find(), "Event without id or name: " + text);
+            this.events.add(new SentEvent(Long.parseLong(matcher.group(1)), matcher.group(2), data));
+        }
+
+        @Override
+        public void complete() {
+            this.completed = true;
+        }
+
+        void block() {
+            this.blocked = new CountDownLatch(1);
+        }
+
+        void unblock() {
+            this.blocked.countDown();
+        }
+
+        void awaitEvents(int count) {
+            await(() -> this.events.size() >= count);
+        }
+
+        List<String> names() {
+            return this.events.stream().map(SentEvent::name).toList();
+        }
+
+        List<Long> bookingIds() {
+            return this.events.stream().map(e -> ((BookingChangeEvent) e.data()).booking().id()).toList();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package me.folgue.salas.reservas;
+
+import java.time.LocalDateTime;
+import me.folgue.salas.bookings.Booking;
+import me.folgue.salas.bookings.BookingIntervalIndex;
+import me.folgue.salas.bookings.BookingService;
+import me.folgue.salas.bookings.exceptions.BookingConflictException;
+import me.folgue.salas.occupancy.OccupancyIndex;
+import me.folgue.salas.rooms.Room;
+import me.folgue.salas.rooms.RoomService;
+import me.folgue.salas.rooms.exceptions.RoomDoesntExistException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the in-memory indexes only get the bookings of the
+ * transactions that are committed.
+ *
+ * @author folgue
+ */
+@SpringBootTest(properties = {
+    "salas.bookings.interval-index.enabled=true",
+    "salas.occupancy.enabled=true",
+    "salas.audit.enabled=false"
+})
+@ActiveProfiles("embedded")
+public class BookingIndexRollbackTest {
+
+    @Autowired
+    private RoomService roomService;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private BookingIntervalIndex intervalIndex;
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Room room;
+    private LocalDateTime start;
+
+    @BeforeEach
+    public void setUp() {
+        this.room = this.roomService.save(new Room("Sala " + System.nanoTime(), 10, "A1"));
+        this.start = LocalDateTime.now().plusDays(1).withNano(0);
+    }
+
+    @Test
+    public void testSaveIfAvailable_RolledBack() throws Exception {
+        int indexed = this.intervalIndex.size();
+
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+            try {
+                this.bookingService.saveIfAvailable(new Booking("folgue", this.start, this.start.plusHours(1), this.room));
+            } catch (BookingConflictException | RoomDoesntExistException e) {
+                throw new IllegalStateException(e);
+            }
+            status.setRollbackOnly();
+        });
+
+        assertTrue(this.intervalIndex.findOverlapping(this.room.getId(), this.start, this.start.plusHours(1)).isEmpty());
+        assertEquals(indexed, this.intervalIndex.size());
+        assertEquals(0, this.occupancyIndex.getOccupancy(this.room.getId(), this.start.toLocalDate()).occupiedSlots());
+        // The range is still free.
+        this.bookingService.saveIfAvailable(new Booking("folgue", this.start, this.start.plusHours(1), this.room));
+        assertEquals(1, this.intervalIndex.findOverlapping(this.room.getId(), this.start, this.start.plusHours(1)).size());
+        assertTrue(this.occupancyIndex.getOccupancy(this.room.getId(), this.start.toLocalDate()).occupiedSlots() > 0);
+    }
+}
@@ -0,0 +1,129 @@
+package me.folgue.salas.reservas;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import me.folgue.salas.bookings.BookingInterval;
+import me.folgue.salas.bookings.BookingIntervalIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author folgue
+ */
+public class BookingIntervalIndexTest {
+
+    private BookingIntervalIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        this.index = new BookingIntervalIndex(null);
+        this.index.put(interval(1L, 1L, 9, 10));
+        this.index.put(interval(2L, 1L, 11, 12));
+        this.index.put(interval(3L, 2L, 9, 18));
+    }
+
+    @Test
+    public void testFindOverlapping_NoConflict() {
+        assertTrue(this.index.findOverlapping(1L, at(10, 15), at(10, 45)).isEmpty());
+    }
+
+    @Test
+    public void testFindOverlapping_InclusiveBoundaries() {
+        List<BookingInterval> conflicts = this.index.findOverlapping(1L, at(10, 0), at(11, 0));
+
+        assertEquals(List.of(1L, 2L), conflicts.stream().map(BookingInterval::bookingId).toList());
+    }
+
+    @Test
+    public void testFindOverlapping_LongBookingStartingBefore() {
+        List<BookingInterval> conflicts = this.index.findOverlapping(2L, at(15, 0), at(16, 0));
+
+        assertEquals(1, conflicts.size());
+        assertEquals(3L, conflicts.get(0).bookingId());
+    }
+
+    @Test
+    public void testFindOverlapping_OtherRoom() {
+        assertTrue(this.index.findOverlapping(3L, at(9, 0), at(18, 0)).isEmpty());
+    }
+
+    @Test
+    public void testPut_ReplacesPreviousInterval() {
+        this.index.put(interval(1L, 2L, 20, 21));
+
+        assertTrue(this.index.findOverlapping(1L, at(9, 0), at(10, 0)).isEmpty());
+        assertEquals(1, this.index.findOverlapping(2L, at(20, 30), at(20, 40)).size());
+        assertEquals(3, this.index.size());
+    }
+
+    @Test
+    public void testRemove() {
+        this.index.remove(2L);
+
+        assertTrue(this.index.findOverlapping(1L, at(11, 0), at(12, 0)).isEmpty());
+        assertEquals(2, this.index.size());
+    }
+
+    @Test
+    public void testRemove_LongBookingOfSameDuration() {
+        // Two bookings of 9 hours, the other one still has to be found once one is removed.
+        this.index.put(new BookingInterval(4L, 2L, at(9, 0).plusDays(1), at(18, 0).plusDays(1)));
+        this.index.remove(3L);
+
+        List<BookingInterval> conflicts = this.index.findOverlapping(2L, at(15, 0).plusDays(1), at(16, 0).plusDays(1));
+
+        assertEquals(List.of(4L), conflicts.stream().map(BookingInterval::bookingId).toList());
+    }
+
+    @Test
+    public void testRemoveRoom() {
+        this.index.removeRoom(1L);
+
+        assertTrue(this.index.findOverlapping(1L, at(9, 0), at(12, 0)).isEmpty());
+        assertEquals(1, this.index.findOverlapping(2L, at(9, 0), at(12, 0)).size());
+        assertEquals(1, this.index.size());
+    }
+
+    @Test
+    public void testFindOverlapping_SameAsScanningAllTheBookings() {
+        Random random = new Random(42);
+        List<BookingInterval> intervals = new ArrayList<>();
+        for (long id = 10; id < 1010; id++) {
+            LocalDateTime startDate = at(0, 0).plusMinutes(random.nextInt(60 * 24 * 30));
+            // Mostly short bookings, with a few that last weeks.
+            LocalDateTime endDate = startDate.plusMinutes(random.nextInt(20) == 0 ? random.nextInt(60 * 24 * 20) : 15 + random.nextInt(120));
+            BookingInterval interval = new BookingInterval(id, 3L, startDate, endDate);
+            intervals.add(interval);
+            this.index.put(interval);
+        }
+        for (long id = 10; id < 1010; id += 3) {
+            this.index.remove(id);
+        }
+        intervals.removeIf(interval -> (interval.bookingId() - 10) % 3 == 0);
+
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime startDate = at(0, 0).plusMinutes(random.nextInt(60 * 24 * 30));
+            LocalDateTime endDate = startDate.plusMinutes(random.nextInt(60 * 24));
+            List<BookingInterval> expected = intervals.stream()
+                    .filter(interval -> interval.overlaps(startDate, endDate))
+                    .sorted(Comparator.comparing(BookingInterval::startDate).thenComparing(BookingInterval::bookingId))
+                    .toList();
+
+            assertEquals(expected, this.index.findOverlapping(3L, startDate, endDate));
+        }
+    }
+
+    private static BookingInterval interval(long bookingId, long roomId, int startHour, int endHour) {
+        return new BookingInterval(bookingId, roomId, at(startHour, 0), at(endHour, 0));
+    }
+
+    private static LocalDateTime at(int hour, int minute) {
+        return LocalDateTime.of(2024, Month.JULY, 21, hour, minute);
+    }
+}
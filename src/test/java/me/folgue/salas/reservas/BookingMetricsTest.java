@@ -0,0 +1,38 @@
+package me.folgue.salas.reservas;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import me.folgue.salas.bookings.BookingMetrics;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author folgue
+ */
+public class BookingMetricsTest {
+
+    @Test
+    public void testBookingCreated_SingleSeries() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BookingMetrics metrics = new BookingMetrics(registry);
+
+        metrics.bookingCreated();
+        metrics.bookingCreated();
+
+        assertEquals(1, registry.find("salas.bookings.creations").counters().size());
+        assertEquals(2.0, registry.get("salas.bookings.creations").counter().count());
+    }
+
+    @Test
+    public void testConflictCheck_SampleRecordedByTheSameTimer() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BookingMetrics metrics = new BookingMetrics(registry);
+
+        metrics.timeConflictCheck(() -> true);
+        Timer.Sample sample = metrics.startConflictCheck();
+        metrics.stopConflictCheck(sample);
+
+        assertEquals(2, registry.get("salas.bookings.conflict.check").timer().count());
+    }
+}
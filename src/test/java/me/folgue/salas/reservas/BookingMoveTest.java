@@ -0,0 +1,79 @@
+package me.folgue.salas.reservas;
+
+import java.time.LocalDateTime;
+import me.folgue.salas.bookings.Booking;
+import me.folgue.salas.bookings.BookingService;
+import me.folgue.salas.rooms.Room;
+import me.folgue.salas.rooms.RoomService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that moving a booking to a different room through the API changes
+ * the calendar of both rooms, with the booking read and modified in the
+ * entity manager of the request (<i>{@code spring.jpa.open-in-view}</i>).
+ *
+ * @author folgue
+ */
+@SpringBootTest(properties = "salas.audit.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("embedded")
+public class BookingMoveTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private RoomService roomService;
+    @Autowired
+    private BookingService bookingService;
+
+    private Room from;
+    private Room to;
+    private Booking booking;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        this.from = this.roomService.save(new Room("Sala " + System.nanoTime(), 10, "A1"));
+        this.to = this.roomService.save(new Room("Sala " + System.nanoTime(), 10, "A2"));
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+        this.booking = this.bookingService.saveIfAvailable(new Booking("folgue", start, start.plusHours(1), this.from));
+    }
+
+    @Test
+    public void testUpdateBooking_MovedChangesBothCalendars() throws Exception {
+        String fromETag = this.calendarETag(this.from);
+        String toETag = this.calendarETag(this.to);
+
+        this.mockMvc.perform(put("/reservas/{bookingId}", this.booking.getId()).param("roomId", this.to.getId().toString()))
+                .andExpect(status().isOk());
+
+        this.mockMvc.perform(get("/reservas/sala/{roomId}", this.from.getId()).header(HttpHeaders.IF_NONE_MATCH, fromETag))
+                .andExpect(status().isOk());
+        this.mockMvc.perform(get("/reservas/sala/{roomId}", this.to.getId()).header(HttpHeaders.IF_NONE_MATCH, toETag))
+                .andExpect(status().isOk());
+        assertNotEquals(fromETag, this.calendarETag(this.from));
+        assertNotEquals(toETag, this.calendarETag(this.to));
+        assertTrue(this.bookingService.getBookingsForRoom(this.from.getId()).isEmpty());
+        assertEquals(1, this.bookingService.getBookingsForRoom(this.to.getId()).size());
+    }
+
+    private String calendarETag(Room room) throws Exception {
+        String eTag = this.mockMvc.perform(get("/reservas/sala/{roomId}", room.getId()))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+        return eTag;
+    }
+}
@@ -1,8 +1,12 @@
 package me.folgue.salas.reservas;
 
+import me.folgue.salas.bookings.Booking;
 import me.folgue.salas.bookings.BookingUtils;
+import me.folgue.salas.bookings.TimeSlot;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.Month;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
@@ -88,4 +92,57 @@ public class BookingUtilsTest {
 
         assertFalse(BookingUtils.isValidDateRange(startDate, endDate));
     }
+
+    @Test
+    public void testEarliestStartOf() {
+        LocalDateTime startDate = LocalDateTime.of(2024, Month.JULY, 21, 20, 20);
+
+        assertEquals(LocalDateTime.of(2024, Month.JUNE, 20, 20, 20), BookingUtils.earliestStartOf(startDate, Duration.ofDays(31)));
+        assertNull(BookingUtils.earliestStartOf(null, Duration.ofDays(31)));
+    }
+
+    @Test
+    public void testDurationSeconds_RoundedUp() {
+        LocalDateTime startDate = LocalDateTime.of(2024, Month.JULY, 21, 20, 20);
+
+        assertEquals(3600, BookingUtils.durationSeconds(startDate, startDate.plusHours(1)));
+        assertEquals(3601, BookingUtils.durationSeconds(startDate, startDate.plusHours(1).plusNanos(1)));
+    }
+
+    @Test
+    public void testFindFreeSlots_NoBookings() {
+        LocalDateTime startDate = LocalDateTime.of(2024, Month.JULY, 21, 8, 0);
+        LocalDateTime endDate = LocalDateTime.of(2024, Month.JULY, 21, 20, 0);
+
+        assertEquals(List.of(new TimeSlot(startDate, endDate)), BookingUtils.findFreeSlots(List.of(), startDate, endDate, Duration.ZERO));
+    }
+
+    @Test
+    public void testFindFreeSlots_GapsBetweenBookings() {
+        LocalDateTime startDate = LocalDateTime.of(2024, Month.JULY, 21, 8, 0);
+        LocalDateTime endDate = LocalDateTime.of(2024, Month.JULY, 21, 20, 0);
+        List<Booking> bookings = List.of(
+                new Booking("a", LocalDateTime.of(2024, Month.JULY, 21, 7, 0), LocalDateTime.of(2024, Month.JULY, 21, 9, 0), null),
+                new Booking("b", LocalDateTime.of(2024, Month.JULY, 21, 12, 0), LocalDateTime.of(2024, Month.JULY, 21, 13, 0), null),
+                new Booking("c", LocalDateTime.of(2024, Month.JULY, 21, 19, 30), LocalDateTime.of(2024, Month.JULY, 21, 21, 0), null)
+        );
+
+        assertEquals(List.of(
+                new TimeSlot(LocalDateTime.of(2024, Month.JULY, 21, 9, 1), LocalDateTime.of(2024, Month.JULY, 21, 11, 59)),
+                new TimeSlot(LocalDateTime.of(2024, Month.JULY, 21, 13, 1), LocalDateTime.of(2024, Month.JULY, 21, 19, 29))
+        ), BookingUtils.findFreeSlots(bookings, startDate, endDate, Duration.ZERO));
+    }
+
+    @Test
+    public void testFindFreeSlots_MinDuration() {
+        LocalDateTime startDate = LocalDateTime.of(2024, Month.JULY, 21, 8, 0);
+        LocalDateTime endDate = LocalDateTime.of(2024, Month.JULY, 21, 20, 0);
+        List<Booking> bookings = List.of(
+                new Booking("a", LocalDateTime.of(2024, Month.JULY, 21, 8, 30), LocalDateTime.of(2024, Month.JULY, 21, 19, 0), null)
+        );
+
+        assertEquals(List.of(
+                new TimeSlot(LocalDateTime.of(2024, Month.JULY, 21, 19, 1), endDate)
+        ), BookingUtils.findFreeSlots(bookings, startDate, endDate, Duration.ofMinutes(45)));
+    }
 }
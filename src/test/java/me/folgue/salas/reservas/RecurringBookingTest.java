@@ -0,0 +1,133 @@
+package me.folgue.salas.reservas;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.List;
+import java.util.Optional;
+import me.folgue.salas.bookings.Booking;
+import me.folgue.salas.bookings.BookingInterval;
+import me.folgue.salas.bookings.RecurrenceFrequency;
+import me.folgue.salas.bookings.RecurringBooking;
+import me.folgue.salas.rooms.Room;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author folgue
+ */
+public class RecurringBookingTest {
+
+    private Room room;
+    private RecurringBooking weekly;
+
+    @BeforeEach
+    public void setUp() {
+        this.room = new Room("Sala", 10, "A1");
+        this.room.setId(1L);
+        // Mondays from 10:00 to 11:00, 10 weeks.
+        this.weekly = recurring(1L, at(6, 10, 0), at(6, 11, 0), RecurrenceFrequency.WEEKLY, 1, 10);
+    }
+
+    @Test
+    public void testLastEndDate() {
+        assertEquals(at(6, 11, 0).plusWeeks(9), this.weekly.getLastEndDate());
+    }
+
+    @Test
+    public void testCountOccurrencesUntil() {
+        LocalDateTime start = at(6, 10, 0);
+
+        assertEquals(1, RecurringBooking.countOccurrencesUntil(start, RecurrenceFrequency.WEEKLY, 1, LocalDate.of(2025, Month.JANUARY, 12)));
+        assertEquals(2, RecurringBooking.countOccurrencesUntil(start, RecurrenceFrequency.WEEKLY, 1, LocalDate.of(2025, Month.JANUARY, 13)));
+        assertEquals(3, RecurringBooking.countOccurrencesUntil(start, RecurrenceFrequency.DAILY, 2, LocalDate.of(2025, Month.JANUARY, 11)));
+        assertEquals(0, RecurringBooking.countOccurrencesUntil(start, RecurrenceFrequency.DAILY, 1, LocalDate.of(2025, Month.JANUARY, 5)));
+    }
+
+    @Test
+    public void testExpand_All() {
+        List<Booking> occurrences = this.weekly.expand();
+
+        assertEquals(10, occurrences.size());
+        assertEquals(at(6, 10, 0).plusWeeks(9), occurrences.get(9).getStartDate());
+        assertTrue(occurrences.stream().allMatch(b -> b.getId() == null && b.getRecurringBookingId() == 1L));
+    }
+
+    @Test
+    public void testExpand_Window() {
+        // From the middle of the second occurrence to the start of the fourth.
+        List<Booking> occurrences = this.weekly.expand(at(13, 10, 30), at(27, 10, 0));
+
+        assertEquals(List.of(at(13, 10, 0), at(20, 10, 0), at(27, 10, 0)),
+                occurrences.stream().map(Booking::getStartDate).toList());
+    }
+
+    @Test
+    public void testExpand_OutsideRule() {
+        assertTrue(this.weekly.expand(at(1, 0, 0), at(6, 9, 59)).isEmpty());
+        assertTrue(this.weekly.expand(at(6, 12, 0).plusWeeks(9), at(6, 12, 0).plusWeeks(20)).isEmpty());
+    }
+
+    @Test
+    public void testOccurrencesStartingBetween() {
+        // The first occurrence started before the range, the fourth starts at its end.
+        assertEquals(List.of(1, 2, 3), this.weekly.occurrencesStartingBetween(at(6, 10, 30), at(27, 10, 0)).boxed().toList());
+        assertEquals(List.of(0), this.weekly.occurrencesStartingBetween(at(6, 10, 0), at(6, 10, 0)).boxed().toList());
+        assertEquals(List.of(1), this.weekly.occurrencesStartingBetween(at(6, 10, 0).withNano(1), at(13, 10, 0)).boxed().toList());
+        assertEquals(0, this.weekly.occurrencesStartingBetween(at(6, 12, 0).plusWeeks(9), at(6, 12, 0).plusWeeks(20)).count());
+    }
+
+    @Test
+    public void testExpandIntervals_NegativeIds() {
+        List<BookingInterval> intervals = this.weekly.expandIntervals(at(6, 0, 0), at(13, 23, 0));
+
+        assertEquals(List.of(-1001L, -1002L), intervals.stream().map(BookingInterval::bookingId).toList());
+        assertTrue(intervals.stream().allMatch(i -> i.roomId() == 1L));
+    }
+
+    @Test
+    public void testFindOverlapping_BetweenOccurrences() {
+        assertTrue(this.weekly.findOverlapping(at(13, 11, 1), at(20, 9, 59)).isEmpty());
+    }
+
+    @Test
+    public void testFindOverlapping_InclusiveBoundaries() {
+        Optional<Booking> conflict = this.weekly.findOverlapping(at(20, 11, 0), at(20, 12, 0));
+
+        assertTrue(conflict.isPresent());
+        assertEquals(at(20, 10, 0), conflict.get().getStartDate());
+    }
+
+    @Test
+    public void testFindOverlapping_OtherRule() {
+        // Every 3 days from 10:30, its second occurrence is on the first Monday.
+        RecurringBooking other = recurring(2L, at(3, 10, 30), at(3, 11, 30), RecurrenceFrequency.DAILY, 3, 20);
+
+        Optional<Booking> conflict = this.weekly.findOverlapping(other);
+
+        assertTrue(conflict.isPresent());
+        assertEquals(at(6, 10, 30), conflict.get().getStartDate());
+        assertEquals(2L, conflict.get().getRecurringBookingId());
+    }
+
+    @Test
+    public void testFindOverlapping_OtherRuleNoConflict() {
+        // Tuesdays at the same time never overlap.
+        RecurringBooking other = recurring(2L, at(7, 10, 0), at(7, 11, 0), RecurrenceFrequency.WEEKLY, 1, 50);
+
+        assertTrue(this.weekly.findOverlapping(other).isEmpty());
+        assertTrue(other.findOverlapping(this.weekly).isEmpty());
+    }
+
+    private RecurringBooking recurring(long id, LocalDateTime startDate, LocalDateTime endDate, RecurrenceFrequency frequency, int interval, int occurrences) {
+        RecurringBooking recurring = new RecurringBooking("Organizer", startDate, endDate, this.room, frequency, interval, occurrences);
+        recurring.setId(id);
+        return recurring;
+    }
+
+    private static LocalDateTime at(int day, int hour, int minute) {
+        return LocalDateTime.of(2025, Month.JANUARY, day, hour, minute);
+    }
+}
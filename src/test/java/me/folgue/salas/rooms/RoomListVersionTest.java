@@ -0,0 +1,44 @@
+package me.folgue.salas.rooms;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author folgue
+ */
+@SpringBootTest(properties = "salas.audit.enabled=false")
+@ActiveProfiles("embedded")
+public class RoomListVersionTest {
+
+    @Autowired
+    private RoomService roomService;
+
+    @Test
+    public void testListVersion_DeleteThenUpdateChangesIt() {
+        Room deleted = this.roomService.save(new Room("Sala " + System.nanoTime(), 10, "A1"));
+        Room updated = this.roomService.save(new Room("Sala " + System.nanoTime(), 10, "A2"));
+        RoomList before = this.roomService.getAllRooms(version -> false);
+
+        this.roomService.delete(deleted.getId());
+        RoomList afterDelete = this.roomService.getAllRooms(version -> false);
+        updated.setCapacity(20);
+        this.roomService.save(updated);
+        RoomList after = this.roomService.getAllRooms(version -> false);
+
+        assertTrue(before.version().version() < afterDelete.version().version());
+        assertTrue(afterDelete.version().version() < after.version().version());
+        assertTrue(after.rooms().stream().noneMatch(room -> room.getId().equals(deleted.getId())));
+        assertTrue(after.rooms().stream().anyMatch(room -> room.getId().equals(updated.getId()) && room.getCapacity() == 20));
+    }
+
+    @Test
+    public void testGetAllRooms_CurrentVersionSkipsTheRooms() {
+        RoomListVersion current = this.roomService.getAllRooms(version -> false).version();
+
+        assertNull(this.roomService.getAllRooms(current::equals).rooms());
+    }
+}